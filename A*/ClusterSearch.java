@@ -0,0 +1,157 @@
+package main.pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Search confined to one rectangular window (a cluster) of a maze grid, with
+ * per-cell state sized to the largest window rather than to the whole grid. Used
+ * by {@link HierarchicalSearch} both to precompute the costs between the
+ * entrances of each cluster and to refine abstract paths into moves. Not
+ * thread-safe: every thread needs its own instance.
+ */
+class ClusterSearch {
+
+    // Static Vars
+    // -----------------------------------------------------------------------------
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Private Fields
+    // -----------------------------------------------------------------------------
+    private final MazeGrid grid;
+    private final int cols;
+    private final int[] dist, stamp;
+    private final byte[] moveInto;
+    private final LongMinHeap open;
+    private int generation;
+    private int left, top, width, height;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new ClusterSearch over the given grid, for windows of at most
+     * clusterSize by clusterSize cells.
+     */
+    ClusterSearch (MazeGrid grid, int clusterSize) {
+        this.grid = grid;
+        this.cols = grid.getCols();
+        this.dist = new int[clusterSize * clusterSize];
+        this.stamp = new int[clusterSize * clusterSize];
+        this.moveInto = new byte[clusterSize * clusterSize];
+        this.open = new LongMinHeap(clusterSize * 4);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * [Mutator] Confines the following searches to the given window.
+     */
+    void bind (int left, int top, int width, int height) {
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Runs A* (Dijkstra, if target is -1) within the window from cell from,
+     * stopping once target is settled. Afterwards, {@link #costTo(int)} holds
+     * the cost of the cheapest path within the window from from to every settled
+     * cell.
+     */
+    void forward (int from, int target) {
+        int seen = start(from), closed = seen + 1;
+        int targetCol = (target < 0) ? 0 : target % cols, targetRow = (target < 0) ? 0 : target / cols;
+        while (!open.isEmpty()) {
+            int local = LongMinHeap.cell(open.pop());
+            if (stamp[local] == closed) { continue; }
+            stamp[local] = closed;
+            int col = left + local % width, row = top + local / width;
+            if (row * cols + col == target) { return; }
+            for (int move = 0; move < 4; move++) {
+                int nextCol = col + MazeProblem.COL_OFFSETS[move], nextRow = row + MazeProblem.ROW_OFFSETS[move];
+                if (nextCol < left || nextCol >= left + width || nextRow < top || nextRow >= top + height) { continue; }
+                int next = (nextRow - top) * width + (nextCol - left), cost = grid.getCost(nextRow * cols + nextCol);
+                if (cost == 0 || stamp[next] == closed) { continue; }
+                int g = dist[local] + cost;
+                if (stamp[next] != seen || g < dist[next]) {
+                    stamp[next] = seen;
+                    dist[next] = g;
+                    moveInto[next] = (byte) move;
+                    int h = (target < 0) ? 0 : Math.abs(nextCol - targetCol) + Math.abs(nextRow - targetRow);
+                    open.push(LongMinHeap.entry(g + h, next));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs Dijkstra backwards within the window from cell to, after which
+     * {@link #costTo(int)} holds the cost of the cheapest path within the window
+     * from every cell to to.
+     */
+    void reverse (int to) {
+        int seen = start(to), closed = seen + 1;
+        while (!open.isEmpty()) {
+            int local = LongMinHeap.cell(open.pop());
+            if (stamp[local] == closed) { continue; }
+            stamp[local] = closed;
+            int col = left + local % width, row = top + local / width;
+            int g = dist[local] + grid.getCost(row * cols + col);
+            for (int move = 0; move < 4; move++) {
+                int prevCol = col + MazeProblem.COL_OFFSETS[move], prevRow = row + MazeProblem.ROW_OFFSETS[move];
+                if (prevCol < left || prevCol >= left + width || prevRow < top || prevRow >= top + height) { continue; }
+                int prev = (prevRow - top) * width + (prevCol - left);
+                if (grid.getCost(prevRow * cols + prevCol) == 0 || stamp[prev] == closed) { continue; }
+                if (stamp[prev] != seen || g < dist[prev]) {
+                    stamp[prev] = seen;
+                    dist[prev] = g;
+                    open.push(LongMinHeap.entry(g, prev));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The cost found by the last search for the given cell of the window,
+     * or {@link #UNREACHABLE} if it was not reached.
+     */
+    int costTo (int cell) {
+        int local = (cell / cols - top) * width + (cell % cols - left);
+        return (stamp[local] == 2 * generation + 1) ? dist[local] : UNREACHABLE;
+    }
+
+    /**
+     * Appends the actions of the path to cell to found by the last forward search
+     * from cell from to the given list.
+     */
+    void appendPath (int from, int to, ArrayList<String> actions) {
+        int start = actions.size();
+        for (int cell = to; cell != from; ) {
+            int move = moveInto[(cell / cols - top) * width + (cell % cols - left)];
+            actions.add(MazeProblem.ACTIONS[move]);
+            cell -= MazeProblem.ROW_OFFSETS[move] * cols + MazeProblem.COL_OFFSETS[move];
+        }
+        for (int i = start, j = actions.size() - 1; i < j; i++, j--) {
+            actions.set(i, actions.set(j, actions.get(i)));
+        }
+    }
+
+    private int start (int cell) {
+        if (++generation >= Integer.MAX_VALUE / 2) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        int local = (cell / cols - top) * width + (cell % cols - left);
+        open.clear();
+        stamp[local] = 2 * generation;
+        dist[local] = 0;
+        open.push(LongMinHeap.entry(0, local));
+        return 2 * generation;
+    }
+
+}
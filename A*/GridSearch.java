@@ -0,0 +1,847 @@
+package main.pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Allocation-free A* engine for MazeProblems. Cells are identified by their int
+ * index {@code row * cols + col}; g-scores, visit marks and the move that led
+ * into each cell live in flat primitive arrays sized to the grid, and the open
+ * list is a binary heap of packed (f-score, cell) longs. After construction, a
+ * search allocates nothing but its result list, so one GridSearch can serve many
+ * queries on the same problem.
+ */
+public class GridSearch {
+
+    // Private Fields
+    // -----------------------------------------------------------------------------
+    private MazeProblem problem;
+    private MazeGrid grid;
+    private int rows, cols;
+    private int[] gScore;
+    private int[] stamp;
+    private byte[] moveInto;
+    private final LongMinHeap open;
+    private int generation, solutionCost, pathCost;
+    private long[] targetBits;
+    private int[] targetCols = new int[1], targetRows = new int[1];
+    private int targetCount;
+    private int[] jumpParent;
+    private long[] nearMud;
+    private boolean lastSearchJumped;
+    private int[] gBack, stampBack;
+    private byte[] moveBack;
+    private LongMinHeap openBack;
+    private int meetCell = -1, expansions, generated, reopened, peakFrontier, heuristicEvaluations;
+    private SearchListener listener = SearchListener.NONE;
+    private final int[] legExpansions = new int[2];
+    private int[] closedIn, incons;
+    private int iteration, inconsCount, bestTarget;
+    private double legLowerBound;
+
+    // Private Static Vars
+    // -----------------------------------------------------------------------------
+    /**
+     * Largest target set searched with the min-over-targets Manhattan heuristic;
+     * beyond it, evaluating the heuristic costs more than it saves and searches
+     * fall back to Dijkstra (h = 0).
+     */
+    static final int MAX_HEURISTIC_TARGETS = 16;
+
+    /**
+     * Amount by which anytime searches lower their weight between iterations
+     * (or further, down to the bound already proven), and the number of
+     * expansions between two checks of the deadline.
+     */
+    private static final double WEIGHT_STEP = 0.5;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new GridSearch over the given MazeProblem, allocating the
+     * per-cell search state once for all later queries.
+     *
+     * @param problem The MazeProblem to search.
+     */
+    public GridSearch (MazeProblem problem) {
+        this.gScore = new int[0];
+        this.open = new LongMinHeap(Math.max(problem.getRows(), problem.getCols()) * 4);
+        bind(problem);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Solves the MazeProblem as {@link Pathfinder#solve(MazeProblem)} does: a path
+     * from the initial state to the key, followed by a path from the key to the
+     * cheapest goal to reach from it. Both legs are optimal A* searches with the
+     * Manhattan distance heuristic; the second searches for all goals at once and
+     * stops as soon as the cheapest one is settled.
+     *
+     * @return An ArrayList of Strings representing actions that lead from the
+     * initial to a goal state via the key, of the format: ["R", "R", "L", ...], or
+     * null if there is no such path.
+     */
+    public ArrayList<String> solve () {
+        return solve(SearchMode.A_STAR);
+    }
+
+    /**
+     * Solves the MazeProblem as {@link #solve()} does, with the given search
+     * strategy.
+     *
+     * @param mode The search strategy to use for both legs.
+     * @return An ArrayList of Strings representing actions that lead from the
+     * initial to a goal state via the key, of the format: ["R", "R", "L", ...], or
+     * null if there is no such path.
+     */
+    public ArrayList<String> solve (SearchMode mode) {
+        return solve(problem.getInitialState(), mode);
+    }
+
+    /**
+     * Solves the MazeProblem as {@link #solve(SearchMode)} does, but from the
+     * given start instead of the problem's initial state.
+     *
+     * @param start The state to start from.
+     * @param mode The search strategy to use for both legs.
+     * @return An ArrayList of Strings representing actions that lead from start to
+     * a goal state via the key, of the format: ["R", "R", "L", ...], or null if
+     * there is no such path.
+     */
+    public ArrayList<String> solve (MazeState start, SearchMode mode) {
+        MazeState key = problem.getKeyState();
+        solutionCost = -1;
+        Arrays.fill(legExpansions, 0);
+        if (key == null || problem.isWall(start.col, start.row)) { return null; }
+        int from = index(start), keyCell = index(key);
+        long begin = (listener == SearchListener.NONE) ? 0 : System.nanoTime();
+        int reached = search(from, new int[] { keyCell }, mode);
+        completeLeg(SearchListener.START_TO_KEY, mode, begin);
+        if (reached < 0) { return null; }
+        int cost = pathCost;
+        ArrayList<String> actions = new ArrayList<>();
+        appendPath(from, keyCell, actions);
+
+        int[] goals = problem.getGoalStates().stream().mapToInt(this::index).toArray();
+        begin = (listener == SearchListener.NONE) ? 0 : System.nanoTime();
+        int goal = search(keyCell, goals, mode);
+        completeLeg(SearchListener.KEY_TO_GOAL, mode, begin);
+        if (goal < 0) { return null; }
+        solutionCost = cost + pathCost;
+        appendPath(keyCell, goal, actions);
+        return actions;
+    }
+
+    /**
+     * @return The cost of the solution returned by the last call to solve, or -1
+     * if it returned null.
+     */
+    int getSolutionCost () {
+        return solutionCost;
+    }
+
+    /**
+     * [Mutator] Sets the listener to report the metrics of every leg of later
+     * calls to solve, solveWeighted and solveAnytime to, or {@link SearchListener#NONE}
+     * to stop reporting (the default, which costs no more than a few counter
+     * increments per node). The legs of solveWeighted and solveAnytime are reported
+     * as {@link SearchMode#A_STAR}, with metrics that cover all their iterations.
+     */
+    public void setListener (SearchListener listener) {
+        this.listener = (listener == null) ? SearchListener.NONE : listener;
+    }
+
+    private void completeLeg (int leg, SearchMode mode, long begin) {
+        legExpansions[leg] = expansions;
+        if (listener == SearchListener.NONE) { return; }
+        listener.legCompleted(new SearchListener.LegStats(leg, mode, expansions, generated, peakFrontier,
+                reopened, heuristicEvaluations, System.nanoTime() - begin));
+    }
+
+    /**
+     * Returns the number of nodes expanded by each leg of the last call to solve,
+     * to compare search modes by: the start to key leg first, then the key to
+     * goal leg (0 for legs that did not run).
+     *
+     * @return A new array of the two counts.
+     */
+    public int[] getLegExpansions () {
+        return legExpansions.clone();
+    }
+
+    /**
+     * Solves the MazeProblem as {@link #solve()} does, but with weighted A*, which
+     * orders its open list by f = g + weight * h: the larger the weight, the
+     * fewer nodes are expanded and the more expensive the solution may be. The
+     * solution costs at most weight times the optimal cost, and usually much less;
+     * the result carries the tighter bound actually proven by the search.
+     *
+     * @param weight The heuristic weight, at least 1 (1 gives plain, optimal A*).
+     * @return The solution (with null actions if there is none) with its cost
+     * and proven suboptimality bound.
+     */
+    public BoundedResult solveWeighted (double weight) {
+        return solveBounded(weight, false, 0);
+    }
+
+    /**
+     * Solves the MazeProblem with Anytime Repairing A* (ARA*): a weighted A*
+     * search with the given initial weight finds a first solution quickly, after
+     * which the weight is lowered step by step, and every further iteration
+     * reuses the previous one's search effort to improve the solution and its
+     * proven bound, until the solution is proven optimal or the time budget runs
+     * out. The budget is split between the two legs, the first leg handing its
+     * unused time on to the second. The first iteration of each leg always runs
+     * to completion, so a solution is returned even if the budget is too short.
+     *
+     * @param initialWeight The heuristic weight of the first iteration, at least 1.
+     * @param budgetNanos The time to spend improving the solution, in nanoseconds.
+     * @return The best solution found (with null actions if there is none) with
+     * its cost and proven suboptimality bound.
+     */
+    public BoundedResult solveAnytime (double initialWeight, long budgetNanos) {
+        return solveBounded(initialWeight, true, System.nanoTime() + Math.max(budgetNanos, 0));
+    }
+
+    private BoundedResult solveBounded (double weight, boolean anytime, long deadline) {
+        if (!(weight >= 1)) {
+            throw new IllegalArgumentException("Heuristic weight must be at least 1");
+        }
+        MazeState start = problem.getInitialState(), key = problem.getKeyState();
+        solutionCost = -1;
+        Arrays.fill(legExpansions, 0);
+        if (key == null) { return new BoundedResult(null, -1, Double.POSITIVE_INFINITY); }
+        int from = index(start), keyCell = index(key);
+        ArrayList<String> actions = new ArrayList<>();
+        long now = System.nanoTime();
+        int toKey = anytimeSearch(from, new int[] { keyCell }, weight, anytime, now + (deadline - now) / 2, actions);
+        completeLeg(SearchListener.START_TO_KEY, SearchMode.A_STAR, now);
+        if (toKey < 0) { return new BoundedResult(null, -1, Double.POSITIVE_INFINITY); }
+        double lowerBound = legLowerBound;
+
+        int[] goals = problem.getGoalStates().stream().mapToInt(this::index).toArray();
+        long begin = System.nanoTime();
+        int toGoal = anytimeSearch(keyCell, goals, weight, anytime, deadline, actions);
+        completeLeg(SearchListener.KEY_TO_GOAL, SearchMode.A_STAR, begin);
+        if (toGoal < 0) { return new BoundedResult(null, -1, Double.POSITIVE_INFINITY); }
+        lowerBound += legLowerBound;
+        solutionCost = toKey + toGoal;
+        return new BoundedResult(actions, solutionCost,
+                (lowerBound == 0) ? 1 : Math.max(1, solutionCost / lowerBound));
+    }
+
+    /**
+     * [Mutator] Rebinds this GridSearch to another MazeProblem, reusing the
+     * per-cell search state where it is large enough, so that one GridSearch can
+     * serve queries on many problems.
+     *
+     * @param problem The MazeProblem to search from now on.
+     */
+    void bind (MazeProblem problem) {
+        if (problem == this.problem) { return; }
+        if (targetBits != null) { setTargets(new int[0]); }
+        this.problem = problem;
+        this.grid = problem.getGrid();
+        this.rows = problem.getRows();
+        this.cols = problem.getCols();
+        if (rows * cols > gScore.length) {
+            this.gScore = new int[rows * cols];
+            this.stamp = new int[rows * cols];
+            this.moveInto = new byte[rows * cols];
+            this.targetBits = new long[(rows * cols + 63) >>> 6];
+            this.jumpParent = null;
+            this.gBack = null;
+            this.closedIn = null;
+            this.generation = 0;
+        }
+        this.nearMud = null;
+    }
+
+    /**
+     * [Mutator] Drops this GridSearch's references to its MazeProblem while keeping
+     * its per-cell buffers, so that an idle engine does not pin a maze; it must be
+     * rebound before it is used again.
+     */
+    void unbind () {
+        if (targetBits != null) { setTargets(new int[0]); }
+        this.problem = null;
+        this.grid = null;
+        this.nearMud = null;
+    }
+
+    /**
+     * Runs the search of the given mode from cell from to the cheapest of the
+     * target cells, leaving the moves of the found path in the per-cell state for
+     * {@link #appendPath(int, int, ArrayList)} and its cost in pathCost.
+     *
+     * @return The target cell reached, or -1 if no target is reachable.
+     */
+    int search (int from, int[] targets, SearchMode mode) {
+        setTargets(targets);
+        resetMetrics();
+        meetCell = -1;
+        int target;
+        switch (mode) {
+            case JUMP_POINT: target = jumpSearch(from); break;
+            case BIDIRECTIONAL: target = bidirectionalSearch(from); break;
+            default: target = search(from);
+        }
+        if (target >= 0 && meetCell < 0) { pathCost = gScore[target]; }
+        return target;
+    }
+
+    /**
+     * Runs A* from cell from to the cheapest of the current targets.
+     *
+     * @return The target cell reached, or -1 if no target is reachable.
+     */
+    private int search (int from) {
+        nextGeneration();
+        lastSearchJumped = false;
+        int seen = 2 * generation, closed = seen + 1;
+        open.clear();
+        gScore[from] = 0;
+        stamp[from] = seen;
+        generate(open, heuristic(from), from, false);
+
+        while (!open.isEmpty()) {
+            int cell = LongMinHeap.cell(open.pop());
+            if (stamp[cell] == closed) { continue; }
+            stamp[cell] = closed;
+            if (isTarget(cell)) { return cell; }
+            expansions++;
+
+            int col = cell % cols, row = cell / cols;
+            for (int move = 0; move < 4; move++) {
+                int nextCol = col + MazeProblem.COL_OFFSETS[move], nextRow = row + MazeProblem.ROW_OFFSETS[move];
+                if (nextCol < 0 || nextCol >= cols || nextRow < 0 || nextRow >= rows) { continue; }
+                int next = nextRow * cols + nextCol, cost = grid.getCost(next);
+                if (cost == 0 || stamp[next] == closed) { continue; }
+                int g = gScore[cell] + cost;
+                if (stamp[next] != seen || g < gScore[next]) {
+                    generate(open, g + heuristic(next), next, stamp[next] == seen);
+                    stamp[next] = seen;
+                    gScore[next] = g;
+                    moveInto[next] = (byte) move;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Runs Jump Point Search from cell from to the cheapest of the current
+     * targets. Under the horizontal-first canonical ordering of 4-connected
+     * paths, a node reached horizontally continues straight or turns vertically,
+     * and a node reached vertically continues straight or turns horizontally only
+     * where the cell beside its predecessor is blocked (a forced neighbor). Jumps
+     * stop at such nodes and at "special" cells: mud, cells next to mud, and
+     * targets, which are expanded in all four directions so that mud costs are
+     * accounted for exactly as in A*.
+     *
+     * @return The target cell reached, or -1 if no target is reachable.
+     */
+    private int jumpSearch (int from) {
+        if (nearMud == null) {
+            if (jumpParent == null) { jumpParent = new int[gScore.length]; }
+            nearMud = markNearMud();
+        }
+        nextGeneration();
+        lastSearchJumped = true;
+        int seen = 2 * generation, closed = seen + 1;
+        open.clear();
+        gScore[from] = 0;
+        stamp[from] = seen;
+        jumpParent[from] = from;
+        generate(open, heuristic(from), from, false);
+
+        while (!open.isEmpty()) {
+            int cell = LongMinHeap.cell(open.pop());
+            if (stamp[cell] == closed) { continue; }
+            stamp[cell] = closed;
+            if (isTarget(cell)) { return cell; }
+            expansions++;
+
+            boolean full = cell == from || isSpecial(cell);
+            int arrival = moveInto[cell];
+            for (int move = 0; move < 4; move++) {
+                if (!full && !isNaturalOrForced(cell, arrival, move)) { continue; }
+                int next = neighbor(cell, move);
+                if (next < 0) { continue; }
+                int jumpPoint = isSpecial(next) ? next : jump(next, move);
+                if (jumpPoint < 0 || stamp[jumpPoint] == closed) { continue; }
+                int g = gScore[cell] + distance(cell, jumpPoint) - 1 + grid.getCost(jumpPoint);
+                if (stamp[jumpPoint] != seen || g < gScore[jumpPoint]) {
+                    generate(open, g + heuristic(jumpPoint), jumpPoint, stamp[jumpPoint] == seen);
+                    stamp[jumpPoint] = seen;
+                    gScore[jumpPoint] = g;
+                    moveInto[jumpPoint] = (byte) move;
+                    jumpParent[jumpPoint] = cell;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Runs ARA* from cell from to the cheapest of the given targets, appending the
+     * best path found to actions. Every iteration is a weighted A* search whose
+     * g-scores carry over from the previous one: nodes whose g-score improves
+     * after they were expanded in the current iteration are set aside (in
+     * incons) and reopened at the start of the next, and the cheapest unweighted
+     * f-score among those and the open nodes is a lower bound on the optimal
+     * cost, since every optimal path passes through one of them; so is the cost
+     * found divided by the iteration's weight. With anytime false, only the first
+     * iteration runs.
+     *
+     * @return The cost of the path appended, or -1 if no target is reachable;
+     * the proven lower bound on the optimal cost is left in legLowerBound.
+     */
+    private int anytimeSearch (int from, int[] targets, double weight, boolean anytime, long deadline,
+            ArrayList<String> actions) {
+        if (closedIn == null) {
+            closedIn = new int[gScore.length];
+            incons = new int[64];
+        }
+        setTargets(targets);
+        resetMetrics();
+        meetCell = -1;
+        lastSearchJumped = false;
+        nextGeneration();
+        int seen = 2 * generation;
+        open.clear();
+        inconsCount = 0;
+        gScore[from] = 0;
+        stamp[from] = seen;
+        bestTarget = isTarget(from) ? from : -1;
+        incons[inconsCount++] = from;
+
+        ArrayList<String> best = null;
+        int bestCost = -1;
+        for (double epsilon = weight; ; ) {
+            reopen(epsilon);
+            if (!improvePath(epsilon, seen, (best == null) ? Long.MAX_VALUE : deadline)) { break; }
+            if (bestTarget < 0) { return -1; }
+            // Nodes on the path may have improved since the target was reached, so
+            // the path followed can be cheaper than the target's g-score.
+            bestCost = 0;
+            for (int cell = bestTarget; cell != from; cell = previous(cell)) { bestCost += grid.getCost(cell); }
+            legLowerBound = Math.max(Math.min(lowerBound(seen), bestCost), bestCost / epsilon);
+            best = new ArrayList<>();
+            appendPath(from, bestTarget, best);
+            if (!anytime || epsilon <= 1 || legLowerBound >= bestCost || System.nanoTime() >= deadline) { break; }
+            epsilon = Math.max(1, Math.min(epsilon - WEIGHT_STEP, bestCost / legLowerBound));
+        }
+        actions.addAll(best);
+        return bestCost;
+    }
+
+    /**
+     * [Mutator] Starts a new ARA* iteration: the open nodes and the nodes set
+     * aside in incons are pushed back onto the open list with their f-scores for
+     * the given weight, and no node counts as expanded any more.
+     */
+    private void reopen (double epsilon) {
+        int previous = iteration;
+        if (++iteration >= Integer.MAX_VALUE) {
+            Arrays.fill(closedIn, 0);
+            iteration = 1;
+            previous = 0;
+        }
+        for (int i = 0; i < open.size(); i++) {
+            int cell = LongMinHeap.cell(open.get(i));
+            if (closedIn[cell] == previous) { continue; }
+            if (inconsCount == incons.length) { incons = Arrays.copyOf(incons, 2 * inconsCount); }
+            incons[inconsCount++] = cell;
+        }
+        open.clear();
+        for (int i = 0; i < inconsCount; i++) {
+            generate(open, weightedScore(incons[i], epsilon), incons[i], false);
+        }
+        inconsCount = 0;
+    }
+
+    /**
+     * Runs one ARA* iteration, expanding nodes in order of g + epsilon * h until
+     * no open node can lead to a target more cheaply than the best one reached.
+     *
+     * @return Whether the iteration completed before the deadline.
+     */
+    private boolean improvePath (double epsilon, int seen, long deadline) {
+        int sinceCheck = 0;
+        while (!open.isEmpty()) {
+            long top = open.peek();
+            int cell = LongMinHeap.cell(top);
+            if (closedIn[cell] == iteration || LongMinHeap.priority(top) != weightedScore(cell, epsilon)) {
+                open.pop();
+                continue;
+            }
+            if (bestTarget >= 0 && LongMinHeap.priority(top) >= gScore[bestTarget]) { return true; }
+            if (++sinceCheck == DEADLINE_CHECK_INTERVAL) {
+                sinceCheck = 0;
+                if (System.nanoTime() >= deadline) { return false; }
+            }
+            open.pop();
+            closedIn[cell] = iteration;
+            if (isTarget(cell)) { continue; }
+            expansions++;
+
+            int col = cell % cols, row = cell / cols;
+            for (int move = 0; move < 4; move++) {
+                int nextCol = col + MazeProblem.COL_OFFSETS[move], nextRow = row + MazeProblem.ROW_OFFSETS[move];
+                if (nextCol < 0 || nextCol >= cols || nextRow < 0 || nextRow >= rows) { continue; }
+                int next = nextRow * cols + nextCol, cost = grid.getCost(next);
+                if (cost == 0) { continue; }
+                int g = gScore[cell] + cost;
+                if (stamp[next] == seen && g >= gScore[next]) { continue; }
+                boolean improved = stamp[next] == seen;
+                stamp[next] = seen;
+                gScore[next] = g;
+                moveInto[next] = (byte) move;
+                if (isTarget(next) && (bestTarget < 0 || g <= gScore[bestTarget])) { bestTarget = next; }
+                if (closedIn[next] == iteration) {
+                    if (inconsCount == incons.length) { incons = Arrays.copyOf(incons, 2 * inconsCount); }
+                    incons[inconsCount++] = next;
+                    reopened++;
+                } else {
+                    generate(open, weightedScore(next, epsilon), next, improved);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The smallest unweighted f-score of the open nodes and the nodes set
+     * aside in incons, or Integer.MAX_VALUE if there are none.
+     */
+    private int lowerBound (int seen) {
+        int bound = Integer.MAX_VALUE;
+        for (int i = 0; i < open.size(); i++) {
+            int cell = LongMinHeap.cell(open.get(i));
+            if (closedIn[cell] != iteration) { bound = Math.min(bound, gScore[cell] + heuristic(cell)); }
+        }
+        for (int i = 0; i < inconsCount; i++) {
+            bound = Math.min(bound, gScore[incons[i]] + heuristic(incons[i]));
+        }
+        return bound;
+    }
+
+    private int weightedScore (int cell, double epsilon) {
+        return gScore[cell] + (int) (epsilon * heuristic(cell));
+    }
+
+    /**
+     * Runs bidirectional A* between cell from and the current targets: a forward
+     * search from from, with the usual heuristic, alternates with a backward
+     * search from all targets at once, whose heuristic is the Manhattan distance
+     * to from. Backward, stepping from a cell to a neighbor costs the cell's own
+     * cost, since that is what the forward move from the neighbor into the cell
+     * costs. Every cell reached by both searches gives a candidate path cost mu,
+     * and the search stops once either open list's smallest f-score reaches the
+     * cheapest mu, as each of them is a lower bound on any path not yet found.
+     *
+     * @return The target cell reached, or -1 if no target is reachable.
+     */
+    private int bidirectionalSearch (int from) {
+        if (gBack == null) {
+            gBack = new int[gScore.length];
+            stampBack = new int[gScore.length];
+            moveBack = new byte[gScore.length];
+            openBack = new LongMinHeap(open.size());
+        }
+        nextGeneration();
+        lastSearchJumped = false;
+        if (isTarget(from)) {
+            gScore[from] = 0;
+            return from;
+        }
+        int seen = 2 * generation, closed = seen + 1, fromCol = from % cols, fromRow = from / cols;
+        open.clear();
+        openBack.clear();
+        gScore[from] = 0;
+        stamp[from] = seen;
+        generate(open, heuristic(from), from, false);
+        for (int i = 0; i < targetCount; i++) {
+            int target = targetRows[i] * cols + targetCols[i];
+            gBack[target] = 0;
+            stampBack[target] = seen;
+            heuristicEvaluations++;
+            generate(openBack, Math.abs(targetCols[i] - fromCol) + Math.abs(targetRows[i] - fromRow), target, false);
+        }
+
+        int mu = Integer.MAX_VALUE, meet = -1;
+        while (!open.isEmpty() && !openBack.isEmpty()) {
+            if (LongMinHeap.priority(open.peek()) >= mu || LongMinHeap.priority(openBack.peek()) >= mu) { break; }
+            boolean forward = open.size() <= openBack.size();
+            int cell = LongMinHeap.cell(forward ? open.pop() : openBack.pop());
+            int[] ownStamp = forward ? stamp : stampBack, ownG = forward ? gScore : gBack;
+            int[] otherStamp = forward ? stampBack : stamp, otherG = forward ? gBack : gScore;
+            if (ownStamp[cell] == closed) { continue; }
+            ownStamp[cell] = closed;
+            expansions++;
+
+            int col = cell % cols, row = cell / cols, cellCost = grid.getCost(cell);
+            for (int move = 0; move < 4; move++) {
+                int nextCol = col + MazeProblem.COL_OFFSETS[move], nextRow = row + MazeProblem.ROW_OFFSETS[move];
+                if (nextCol < 0 || nextCol >= cols || nextRow < 0 || nextRow >= rows) { continue; }
+                int next = nextRow * cols + nextCol, nextCost = grid.getCost(next);
+                if (nextCost == 0 || ownStamp[next] == closed) { continue; }
+                int g = ownG[cell] + (forward ? nextCost : cellCost);
+                if (ownStamp[next] == seen && g >= ownG[next]) { continue; }
+                if (forward) {
+                    moveInto[next] = (byte) move;
+                    generate(open, g + heuristic(next), next, ownStamp[next] == seen);
+                } else {
+                    moveBack[next] = (byte) (move ^ 1);
+                    heuristicEvaluations++;
+                    generate(openBack, g + Math.abs(nextCol - fromCol) + Math.abs(nextRow - fromRow), next, ownStamp[next] == seen);
+                }
+                ownStamp[next] = seen;
+                ownG[next] = g;
+                if (otherStamp[next] >= seen && g + otherG[next] < mu) {
+                    mu = g + otherG[next];
+                    meet = next;
+                }
+            }
+        }
+        if (meet < 0) { return -1; }
+        meetCell = meet;
+        pathCost = mu;
+        int cell = meet;
+        while (gBack[cell] != 0) { cell = nextBack(cell); }
+        return cell;
+    }
+
+    /**
+     * Pushes cell onto the given open list with the given f-score, counting it
+     * for the search metrics.
+     *
+     * @param reopened Whether cell was already on the open list, with a worse
+     * g-score whose entry is now stale.
+     */
+    private void generate (LongMinHeap heap, int priority, int cell, boolean reopened) {
+        heap.push(LongMinHeap.entry(priority, cell));
+        generated++;
+        if (reopened) { this.reopened++; }
+        int frontier = (openBack == null) ? open.size() : open.size() + openBack.size();
+        if (frontier > peakFrontier) { peakFrontier = frontier; }
+    }
+
+    /**
+     * Zeroes the search metrics, and empties the backward open list, whose leftover
+     * entries would otherwise count toward the frontier of a later search.
+     */
+    private void resetMetrics () {
+        expansions = generated = reopened = peakFrontier = heuristicEvaluations = 0;
+        if (openBack != null) { openBack.clear(); }
+    }
+
+    private int nextBack (int cell) {
+        int move = moveBack[cell];
+        return cell + MazeProblem.ROW_OFFSETS[move] * cols + MazeProblem.COL_OFFSETS[move];
+    }
+
+    /**
+     * Whether a jump point reached by the arrival move should continue with the
+     * given move: straight on, any vertical turn after a horizontal arrival, and
+     * horizontal turns after a vertical arrival only if forced.
+     */
+    private boolean isNaturalOrForced (int cell, int arrival, int move) {
+        if (move == arrival) { return true; }
+        boolean arrivedVertically = arrival < 2, movesVertically = move < 2;
+        if (!arrivedVertically) { return movesVertically; }
+        if (movesVertically) { return false; }
+        int previous = cell - MazeProblem.ROW_OFFSETS[arrival] * cols;
+        return !isUniform(neighbor(previous, move));
+    }
+
+    /**
+     * Walks from cell (already known to be a uniform, non-special cell) in the
+     * direction of move until reaching a jump point.
+     *
+     * @return The jump point, or -1 if the walk runs into a wall.
+     */
+    private int jump (int cell, int move) {
+        boolean vertical = move < 2;
+        while (true) {
+            if (vertical) {
+                for (int side = 2; side < 4; side++) {
+                    int beside = neighbor(cell, side);
+                    if (beside >= 0 && !isUniform(neighbor(cell - MazeProblem.ROW_OFFSETS[move] * cols, side))) { return cell; }
+                }
+            } else {
+                for (int up = 0; up < 2; up++) {
+                    int next = neighbor(cell, up);
+                    if (next >= 0 && (isSpecial(next) || jump(next, up) >= 0)) { return cell; }
+                }
+            }
+            int next = neighbor(cell, move);
+            if (next < 0) { return -1; }
+            if (isSpecial(next)) { return next; }
+            cell = next;
+        }
+    }
+
+    /**
+     * @return The index of the passable cell one move away from cell, or -1 if
+     * that is a wall or outside of the maze.
+     */
+    private int neighbor (int cell, int move) {
+        int col = cell % cols + MazeProblem.COL_OFFSETS[move], row = cell / cols + MazeProblem.ROW_OFFSETS[move];
+        if (col < 0 || col >= cols || row < 0 || row >= rows) { return -1; }
+        int next = row * cols + col;
+        return grid.getCost(next) == 0 ? -1 : next;
+    }
+
+    /**
+     * @return Whether the given cell (-1 for none) is passable at cost 1.
+     */
+    private boolean isUniform (int cell) {
+        return cell >= 0 && grid.getCost(cell) == 1;
+    }
+
+    /**
+     * @return Whether the given passable cell must be generated and fully expanded
+     * rather than jumped over: mud, next to mud, or a target.
+     */
+    private boolean isSpecial (int cell) {
+        return isTarget(cell) || (nearMud[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * @return Bit set of the cells that are mud or 4-adjacent to mud.
+     */
+    private long[] markNearMud () {
+        long[] marks = new long[(rows * cols + 63) >>> 6];
+        for (int cell = 0; cell < rows * cols; cell++) {
+            if (grid.get(cell) != MazeGrid.MUD) { continue; }
+            marks[cell >>> 6] |= 1L << cell;
+            for (int move = 0; move < 4; move++) {
+                int next = neighbor(cell, move);
+                if (next >= 0) { marks[next >>> 6] |= 1L << next; }
+            }
+        }
+        return marks;
+    }
+
+    /**
+     * Appends the actions of the path to cell to found by the last search from
+     * cell from to the given list.
+     */
+    void appendPath (int from, int to, ArrayList<String> actions) {
+        int end = (meetCell < 0) ? to : meetCell;
+        int length = 0;
+        for (int cell = end; cell != from; cell = previous(cell)) { length += steps(cell); }
+        String[] path = new String[length];
+        for (int cell = end; cell != from; cell = previous(cell)) {
+            for (int step = steps(cell); step > 0; step--) {
+                path[--length] = MazeProblem.ACTIONS[moveInto[cell]];
+            }
+        }
+        actions.addAll(Arrays.asList(path));
+        for (int cell = end; cell != to; cell = nextBack(cell)) { actions.add(MazeProblem.ACTIONS[moveBack[cell]]); }
+    }
+
+    private int previous (int cell) {
+        if (lastSearchJumped) { return jumpParent[cell]; }
+        int move = moveInto[cell];
+        return cell - MazeProblem.ROW_OFFSETS[move] * cols - MazeProblem.COL_OFFSETS[move];
+    }
+
+    private int steps (int cell) {
+        if (!lastSearchJumped) { return 1; }
+        return distance(jumpParent[cell], cell);
+    }
+
+    /**
+     * @return The Manhattan distance between two cells.
+     */
+    private int distance (int a, int b) {
+        return Math.abs(a % cols - b % cols) + Math.abs(a / cols - b / cols);
+    }
+
+    /**
+     * [Mutator] Replaces the target set of the next search.
+     */
+    private void setTargets (int[] targets) {
+        for (int i = 0; i < targetCount; i++) {
+            int cell = targetRows[i] * cols + targetCols[i];
+            targetBits[cell >>> 6] &= ~(1L << cell);
+        }
+        if (targets.length > targetCols.length) {
+            targetCols = new int[targets.length];
+            targetRows = new int[targets.length];
+        }
+        for (int i = 0; i < targets.length; i++) {
+            targetCols[i] = targets[i] % cols;
+            targetRows[i] = targets[i] / cols;
+            targetBits[targets[i] >>> 6] |= 1L << targets[i];
+        }
+        targetCount = targets.length;
+    }
+
+    private boolean isTarget (int cell) {
+        return (targetBits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * @return The Manhattan distance from cell to the nearest target, which is
+     * admissible for the whole target set, or 0 when there are too many targets
+     * for that to pay off.
+     */
+    private int heuristic (int cell) {
+        if (targetCount > MAX_HEURISTIC_TARGETS) { return 0; }
+        heuristicEvaluations++;
+        int col = cell % cols, row = cell / cols, best = Integer.MAX_VALUE;
+        for (int i = 0; i < targetCount; i++) {
+            best = Math.min(best, Math.abs(col - targetCols[i]) + Math.abs(row - targetRows[i]));
+        }
+        return best;
+    }
+
+    private int index (MazeState state) {
+        return state.row * cols + state.col;
+    }
+
+    private void nextGeneration () {
+        if (++generation >= Integer.MAX_VALUE / 2) {
+            Arrays.fill(stamp, 0);
+            if (stampBack != null) { Arrays.fill(stampBack, 0); }
+            generation = 1;
+        }
+    }
+
+
+    /**
+     * Public inner class serving as a tuple for the results of bounded-suboptimal
+     * searches: the solution found (null if there is none), its cost (-1 if there
+     * is none), and a proven bound on how many times more expensive it is than an
+     * optimal solution (1 if it is proven optimal).
+     */
+    public static class BoundedResult {
+
+        public final ArrayList<String> ACTIONS;
+        public final int COST;
+        public final double BOUND;
+
+        /**
+         * Constructor for a BoundedResult.
+         * @param actions The solution found, or null if there is none.
+         * @param cost Total cost of the solution if there is one, -1 otherwise.
+         * @param bound Proven suboptimality bound of the solution.
+         */
+        public BoundedResult (ArrayList<String> actions, int cost, double bound) {
+            this.ACTIONS = actions;
+            this.COST = cost;
+            this.BOUND = bound;
+        }
+    }
+
+}
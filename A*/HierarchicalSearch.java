@@ -0,0 +1,445 @@
+package main.pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Hierarchical path-finding (HPA*) for large MazeProblems. The grid is
+ * partitioned into square clusters. Along every border between two clusters,
+ * each maximal run of cells that are open on both sides is an entrance, marked
+ * by one transition (short runs) or two (long runs) between a pair of facing
+ * cells. The cells of all transitions are the nodes of an abstract graph. Edges
+ * connect the two cells of a transition, and every two nodes of a cluster, at
+ * the cost of the cheapest path between them inside the cluster, mud included.
+ * These intra-cluster costs are computed once, in parallel across clusters.
+ * <p>
+ * A query connects its start and targets to the nodes of their clusters and
+ * searches the abstract graph, which is far smaller than the grid. It then
+ * refines only the chosen corridors into moves, one cluster-confined search per
+ * abstract edge. Paths are restricted to pass through entrances, so they can be
+ * slightly more expensive than optimal ones.
+ * <p>
+ * Queries share per-instance scratch state: a HierarchicalSearch must not be
+ * queried from several threads at once.
+ */
+public class HierarchicalSearch {
+
+    // Public Static Vars
+    // -----------------------------------------------------------------------------
+    public static final int DEFAULT_CLUSTER_SIZE = 32;
+
+    // Private Static Vars
+    // -----------------------------------------------------------------------------
+    /**
+     * Longest entrance marked by a single transition in its middle; longer ones
+     * get one at each end.
+     */
+    private static final int MAX_SINGLE_TRANSITION = 5;
+
+    // Private Fields
+    // -----------------------------------------------------------------------------
+    private final MazeProblem problem;
+    private final MazeGrid grid;
+    private final int rows, cols, clusterSize, clusterCols;
+
+    /**
+     * Abstract nodes, ordered by cluster and then cell: the keys pack
+     * {@code cluster << 32 | cell}, and the nodes of cluster c are
+     * [clusterStart[c], clusterStart[c + 1]).
+     */
+    private final long[] nodeKeys;
+    private final int[] nodeCell, clusterStart;
+
+    /**
+     * Abstract edges in compressed rows: the edges out of node n are
+     * [edgeStart[n], edgeStart[n + 1]).
+     */
+    private final int[] edgeStart, edgeTarget, edgeCost;
+
+    // Query scratch state; the start is node START and all targets are node SINK
+    private final int start, sink;
+    private final int[] gScore, stamp, parent, sinkCost, sinkTarget, sinkStamp;
+    private final LongMinHeap open;
+    private final ClusterSearch local;
+    private int[] startNodes = new int[16], startCosts = new int[16];
+    private int[] targetCols = new int[1], targetRows = new int[1];
+    private int startCount, targetCount, generation;
+
+
+    // Constructors
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Builds the abstract graph of the given MazeProblem with clusters of
+     * {@link #DEFAULT_CLUSTER_SIZE} cells square.
+     *
+     * @param problem The MazeProblem to search.
+     */
+    public HierarchicalSearch (MazeProblem problem) {
+        this(problem, DEFAULT_CLUSTER_SIZE);
+    }
+
+    /**
+     * Builds the abstract graph of the given MazeProblem.
+     *
+     * @param problem The MazeProblem to search.
+     * @param clusterSize Side length of the clusters, in cells; larger clusters
+     * make a smaller abstract graph but slower builds and refinements.
+     */
+    public HierarchicalSearch (MazeProblem problem, int clusterSize) {
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("Cluster size must be at least 2");
+        }
+        this.problem = problem;
+        this.grid = problem.getGrid();
+        this.rows = problem.getRows();
+        this.cols = problem.getCols();
+        this.clusterSize = clusterSize;
+        this.clusterCols = (cols + clusterSize - 1) / clusterSize;
+        int clusterCount = clusterCols * ((rows + clusterSize - 1) / clusterSize);
+
+        long[] transitions = findTransitions();
+        long[] keys = new long[2 * transitions.length];
+        for (int i = 0; i < transitions.length; i++) {
+            keys[2 * i] = nodeKey((int) (transitions[i] >>> 32));
+            keys[2 * i + 1] = nodeKey((int) transitions[i]);
+        }
+        Arrays.sort(keys);
+        int nodes = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) { keys[nodes++] = keys[i]; }
+        }
+        this.nodeKeys = Arrays.copyOf(keys, nodes);
+        this.nodeCell = new int[nodes];
+        this.clusterStart = new int[clusterCount + 1];
+        for (int n = 0; n < nodes; n++) {
+            nodeCell[n] = (int) nodeKeys[n];
+            clusterStart[(int) (nodeKeys[n] >>> 32) + 1]++;
+        }
+        for (int c = 0; c < clusterCount; c++) { clusterStart[c + 1] += clusterStart[c]; }
+
+        // Intra-cluster edges, as (from, to, cost) triples per cluster
+        // Clusters are connected in blocks, a few per worker to even out the load,
+        // each block with its own search, so that nothing (above all, no reference
+        // to the grid) is left behind in the pool's threads
+        int[][] intra = new int[clusterCount][];
+        int blocks = Math.min(clusterCount, 4 * ForkJoinPool.getCommonPoolParallelism());
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            ClusterSearch search = new ClusterSearch(grid, clusterSize);
+            int end = (int) ((long) (block + 1) * clusterCount / blocks);
+            for (int c = (int) ((long) block * clusterCount / blocks); c < end; c++) {
+                intra[c] = connectCluster(c, search);
+            }
+        });
+
+        this.edgeStart = new int[nodes + 1];
+        for (long transition : transitions) {
+            edgeStart[nodeOf((int) (transition >>> 32)) + 1]++;
+            edgeStart[nodeOf((int) transition) + 1]++;
+        }
+        for (int[] edges : intra) {
+            for (int i = 0; i < edges.length; i += 3) { edgeStart[edges[i] + 1]++; }
+        }
+        for (int n = 0; n < nodes; n++) { edgeStart[n + 1] += edgeStart[n]; }
+        this.edgeTarget = new int[edgeStart[nodes]];
+        this.edgeCost = new int[edgeStart[nodes]];
+        int[] fill = Arrays.copyOf(edgeStart, nodes);
+        for (long transition : transitions) {
+            int a = nodeOf((int) (transition >>> 32)), b = nodeOf((int) transition);
+            addEdge(fill, a, b, grid.getCost(nodeCell[b]));
+            addEdge(fill, b, a, grid.getCost(nodeCell[a]));
+        }
+        for (int[] edges : intra) {
+            for (int i = 0; i < edges.length; i += 3) { addEdge(fill, edges[i], edges[i + 1], edges[i + 2]); }
+        }
+
+        this.start = nodes;
+        this.sink = nodes + 1;
+        this.gScore = new int[nodes + 2];
+        this.stamp = new int[nodes + 2];
+        this.parent = new int[nodes + 2];
+        this.sinkCost = new int[nodes];
+        this.sinkTarget = new int[nodes];
+        this.sinkStamp = new int[nodes];
+        this.open = new LongMinHeap(64);
+        this.local = new ClusterSearch(grid, clusterSize);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @return The number of nodes of the abstract graph.
+     */
+    public int getNodeCount () {
+        return nodeCell.length;
+    }
+
+    /**
+     * @return The number of (directed) edges of the abstract graph.
+     */
+    public int getEdgeCount () {
+        return edgeTarget.length;
+    }
+
+    /**
+     * Solves the MazeProblem as {@link GridSearch#solve()} does, by hierarchical
+     * search: a path from the initial state to the key, followed by a path from
+     * the key to the goal that looks cheapest in the abstract graph.
+     *
+     * @return An ArrayList of Strings representing actions that lead from the
+     * initial to a goal state via the key, of the format: ["R", "R", "L", ...], or
+     * null if there is no such path.
+     */
+    public ArrayList<String> solve () {
+        MazeState initial = problem.getInitialState(), key = problem.getKeyState();
+        if (key == null) { return null; }
+        int from = initial.row * cols + initial.col, keyCell = key.row * cols + key.col;
+        ArrayList<String> actions = new ArrayList<>();
+        if (search(from, new int[] { keyCell }, actions) < 0) { return null; }
+        int[] goals = problem.getGoalStates().stream().mapToInt(goal -> goal.row * cols + goal.col).toArray();
+        if (search(keyCell, goals, actions) < 0) { return null; }
+        return actions;
+    }
+
+    /**
+     * Searches the abstract graph from cell from to the cheapest of the target
+     * cells and appends the refined path to actions.
+     *
+     * @return The target cell reached, or -1 if no target is reachable.
+     */
+    int search (int from, int[] targets, ArrayList<String> actions) {
+        if (++generation >= Integer.MAX_VALUE / 2) {
+            Arrays.fill(stamp, 0);
+            Arrays.fill(sinkStamp, 0);
+            generation = 1;
+        }
+        int seen = 2 * generation, closed = seen + 1;
+        setTargets(targets);
+
+        // Connect the start to the nodes of its cluster, and directly to the
+        // targets in it
+        int direct = -1, directCost = ClusterSearch.UNREACHABLE;
+        int fromCluster = clusterOf(from);
+        bindCluster(fromCluster);
+        local.forward(from, -1);
+        startCount = 0;
+        for (int n = clusterStart[fromCluster]; n < clusterStart[fromCluster + 1]; n++) {
+            int cost = local.costTo(nodeCell[n]);
+            if (cost == ClusterSearch.UNREACHABLE) { continue; }
+            if (startCount == startNodes.length) {
+                startNodes = Arrays.copyOf(startNodes, 2 * startCount);
+                startCosts = Arrays.copyOf(startCosts, 2 * startCount);
+            }
+            startNodes[startCount] = n;
+            startCosts[startCount++] = cost;
+        }
+        for (int target : targets) {
+            if (clusterOf(target) == fromCluster && local.costTo(target) < directCost) {
+                directCost = local.costTo(target);
+                direct = target;
+            }
+        }
+
+        // Connect the nodes of the targets' clusters to the sink
+        for (int target : targets) {
+            int cluster = clusterOf(target);
+            bindCluster(cluster);
+            local.reverse(target);
+            for (int n = clusterStart[cluster]; n < clusterStart[cluster + 1]; n++) {
+                int cost = local.costTo(nodeCell[n]);
+                if (cost == ClusterSearch.UNREACHABLE) { continue; }
+                if (sinkStamp[n] != generation || cost < sinkCost[n]) {
+                    sinkStamp[n] = generation;
+                    sinkCost[n] = cost;
+                    sinkTarget[n] = target;
+                }
+            }
+        }
+
+        open.clear();
+        gScore[start] = 0;
+        stamp[start] = seen;
+        open.push(LongMinHeap.entry(heuristic(from), start));
+        while (!open.isEmpty()) {
+            int node = LongMinHeap.cell(open.pop());
+            if (stamp[node] == closed) { continue; }
+            stamp[node] = closed;
+            if (node == sink) { break; }
+            if (node == start) {
+                for (int i = 0; i < startCount; i++) { relax(node, startNodes[i], startCosts[i], seen, closed); }
+                if (direct >= 0) { relax(node, sink, directCost, seen, closed); }
+                continue;
+            }
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                relax(node, edgeTarget[e], edgeCost[e], seen, closed);
+            }
+            if (sinkStamp[node] == generation) { relax(node, sink, sinkCost[node], seen, closed); }
+        }
+        if (stamp[sink] != closed) { return -1; }
+
+        // Refine the abstract path, from the sink back to the start
+        int last = parent[sink], target = (last == start) ? direct : sinkTarget[last];
+        int length = 0;
+        for (int node = last; node != start; node = parent[node]) { length++; }
+        int[] cells = new int[length + 2];
+        cells[0] = from;
+        cells[length + 1] = target;
+        for (int node = last, i = length; node != start; node = parent[node]) { cells[i--] = nodeCell[node]; }
+        for (int i = 0; i + 1 < cells.length; i++) { refine(cells[i], cells[i + 1], actions); }
+        return target;
+    }
+
+    /**
+     * Appends the moves from cell a to cell b, which are either in the same
+     * cluster or a transition apart.
+     */
+    private void refine (int a, int b, ArrayList<String> actions) {
+        if (a == b) { return; }
+        int cluster = clusterOf(a);
+        if (cluster == clusterOf(b)) {
+            bindCluster(cluster);
+            local.forward(a, b);
+            local.appendPath(a, b, actions);
+            return;
+        }
+        int offset = b - a;
+        actions.add(MazeProblem.ACTIONS[offset == -cols ? MazeProblem.UP : offset == cols ? MazeProblem.DOWN
+                : offset == -1 ? MazeProblem.LEFT : MazeProblem.RIGHT]);
+    }
+
+    private void relax (int node, int next, int cost, int seen, int closed) {
+        if (stamp[next] == closed) { return; }
+        int g = gScore[node] + cost;
+        if (stamp[next] != seen || g < gScore[next]) {
+            stamp[next] = seen;
+            gScore[next] = g;
+            parent[next] = node;
+            open.push(LongMinHeap.entry(g + (next == sink ? 0 : heuristic(nodeCell[next])), next));
+        }
+    }
+
+    /**
+     * @return Triples (from, to, cost) of the cheapest paths inside cluster c
+     * between every ordered pair of its nodes that are connected inside it.
+     */
+    private int[] connectCluster (int c, ClusterSearch search) {
+        int first = clusterStart[c], end = clusterStart[c + 1];
+        int[] edges = new int[3 * (end - first) * Math.max(end - first - 1, 0)];
+        int count = 0;
+        bindCluster(search, c);
+        for (int a = first; a < end; a++) {
+            search.forward(nodeCell[a], -1);
+            for (int b = first; b < end; b++) {
+                int cost = search.costTo(nodeCell[b]);
+                if (a == b || cost == ClusterSearch.UNREACHABLE) { continue; }
+                edges[count++] = a;
+                edges[count++] = b;
+                edges[count++] = cost;
+            }
+        }
+        return Arrays.copyOf(edges, count);
+    }
+
+    /**
+     * @return The transitions between clusters, each packing the indices of its
+     * two facing cells as {@code a << 32 | b}.
+     */
+    private long[] findTransitions () {
+        long[] transitions = new long[64];
+        int count = 0;
+        for (int vertical = 0; vertical < 2; vertical++) {
+            // Borders between horizontal neighbors (vertical = 0) run along columns
+            int across = (vertical == 0) ? cols : rows, along = (vertical == 0) ? rows : cols;
+            for (int line = clusterSize - 1; line + 1 < across; line += clusterSize) {
+                for (int segment = 0; segment < along; segment += clusterSize) {
+                    int segmentEnd = Math.min(segment + clusterSize, along), runStart = -1;
+                    for (int i = segment; i <= segmentEnd; i++) {
+                        boolean open = i < segmentEnd && isOpenPair(vertical, line, i);
+                        if (open && runStart < 0) { runStart = i; }
+                        if (open || runStart < 0) { continue; }
+                        int runEnd = i - 1;
+                        if (count + 2 > transitions.length) { transitions = Arrays.copyOf(transitions, 2 * count); }
+                        if (runEnd - runStart + 1 <= MAX_SINGLE_TRANSITION) {
+                            transitions[count++] = transition(vertical, line, (runStart + runEnd) >>> 1);
+                        } else {
+                            transitions[count++] = transition(vertical, line, runStart);
+                            transitions[count++] = transition(vertical, line, runEnd);
+                        }
+                        runStart = -1;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(transitions, count);
+    }
+
+    private boolean isOpenPair (int vertical, int line, int i) {
+        long pair = transition(vertical, line, i);
+        return grid.getCost((int) (pair >>> 32)) != 0 && grid.getCost((int) pair) != 0;
+    }
+
+    private long transition (int vertical, int line, int i) {
+        int a = (vertical == 0) ? i * cols + line : line * cols + i;
+        int b = (vertical == 0) ? a + 1 : a + cols;
+        return ((long) a << 32) | b;
+    }
+
+    private void addEdge (int[] fill, int from, int to, int cost) {
+        edgeTarget[fill[from]] = to;
+        edgeCost[fill[from]++] = cost;
+    }
+
+    private int clusterOf (int cell) {
+        return (cell / cols / clusterSize) * clusterCols + (cell % cols) / clusterSize;
+    }
+
+    private long nodeKey (int cell) {
+        return ((long) clusterOf(cell) << 32) | cell;
+    }
+
+    private int nodeOf (int cell) {
+        return Arrays.binarySearch(nodeKeys, nodeKey(cell));
+    }
+
+    private void bindCluster (int cluster) {
+        bindCluster(local, cluster);
+    }
+
+    private void bindCluster (ClusterSearch search, int cluster) {
+        int left = (cluster % clusterCols) * clusterSize, top = (cluster / clusterCols) * clusterSize;
+        search.bind(left, top, Math.min(clusterSize, cols - left), Math.min(clusterSize, rows - top));
+    }
+
+    /**
+     * [Mutator] Replaces the target set used by the heuristic.
+     */
+    private void setTargets (int[] targets) {
+        if (targets.length > targetCols.length) {
+            targetCols = new int[targets.length];
+            targetRows = new int[targets.length];
+        }
+        for (int i = 0; i < targets.length; i++) {
+            targetCols[i] = targets[i] % cols;
+            targetRows[i] = targets[i] / cols;
+        }
+        targetCount = targets.length;
+    }
+
+    /**
+     * @return The Manhattan distance from cell to the nearest target, or 0 when
+     * there are more than {@link GridSearch#MAX_HEURISTIC_TARGETS} targets.
+     */
+    private int heuristic (int cell) {
+        if (targetCount > GridSearch.MAX_HEURISTIC_TARGETS) { return 0; }
+        int col = cell % cols, row = cell / cols, best = Integer.MAX_VALUE;
+        for (int i = 0; i < targetCount; i++) {
+            best = Math.min(best, Math.abs(col - targetCols[i]) + Math.abs(row - targetRows[i]));
+        }
+        return best;
+    }
+
+}
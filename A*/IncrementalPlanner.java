@@ -0,0 +1,284 @@
+package main.pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Incremental planner for mazes whose cells change at runtime, based on D* Lite.
+ * Each leg of the route (initial state to key, key to the nearest goal) keeps
+ * the state of a backward search from its targets: the g-value of every cell is
+ * its cost to reach a target. When a cell changes, only the cells whose costs
+ * it actually affects are re-expanded on the next {@link #solve()}. The cost of
+ * replanning is therefore proportional to the extent of the change rather than
+ * to the size of the maze.
+ * <p>
+ * The planner works on its own copy of the problem's maze. Only open, wall and
+ * mud cells can change; the initial state, key and goals are fixed.
+ */
+public class IncrementalPlanner {
+
+    // Private Static Vars
+    // -----------------------------------------------------------------------------
+    private static final int INF = Integer.MAX_VALUE;
+
+    // Private Fields
+    // -----------------------------------------------------------------------------
+    private final MazeGrid grid;
+    private final int rows, cols;
+    private final Leg toKey, toGoal;
+    private int cost = -1, expansions;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new IncrementalPlanner for the given MazeProblem, whose maze
+     * is copied and left unchanged by later cell changes.
+     *
+     * @param problem The MazeProblem to plan in.
+     */
+    public IncrementalPlanner (MazeProblem problem) {
+        this.grid = problem.getGrid().copy();
+        this.rows = problem.getRows();
+        this.cols = problem.getCols();
+        MazeState initial = problem.getInitialState(), key = problem.getKeyState();
+        if (key == null) {
+            this.toKey = null;
+            this.toGoal = null;
+            return;
+        }
+        int keyCell = key.row * cols + key.col;
+        this.toKey = new Leg(initial.row * cols + initial.col, new int[] { keyCell });
+        this.toGoal = new Leg(keyCell, problem.getGoalStates().stream().mapToInt(goal -> goal.row * cols + goal.col).toArray());
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * [Mutator] Changes the cell at (col, row) to the given maze character.
+     *
+     * @param col Column of the cell.
+     * @param row Row of the cell.
+     * @param c One of '.', 'X' or 'M'.
+     * @throws IllegalArgumentException If (col, row) is outside of the maze, c is
+     * not one of '.', 'X' or 'M', or the cell is the initial state, the key or a
+     * goal.
+     */
+    public void setCell (int col, int row, char c) {
+        checkBounds(col, row);
+        int type = MazeGrid.typeOf(c), current = grid.get(col, row);
+        if (type != MazeGrid.OPEN && type != MazeGrid.WALL && type != MazeGrid.MUD) {
+            throw new IllegalArgumentException("Only '.', 'X' and 'M' cells can be set");
+        }
+        if (current != MazeGrid.OPEN && current != MazeGrid.WALL && current != MazeGrid.MUD) {
+            throw new IllegalArgumentException("Cell (" + col + ", " + row + ") cannot be changed");
+        }
+        if (type == current) { return; }
+        grid.set(col, row, type);
+        if (toKey == null) { return; }
+        int cell = row * cols + col;
+        toKey.cellChanged(cell);
+        toGoal.cellChanged(cell);
+    }
+
+    /**
+     * @return The maze character of the cell at (col, row), as of the latest
+     * changes.
+     * @throws IllegalArgumentException If (col, row) is outside of the maze.
+     */
+    public char getCell (int col, int row) {
+        checkBounds(col, row);
+        return MazeGrid.charOf(grid.get(col, row));
+    }
+
+    /**
+     * Cells are addressed by index row * cols + col, so a column past the edge
+     * would silently address a cell of the next row.
+     *
+     * @throws IllegalArgumentException If (col, row) is outside of the maze.
+     */
+    private void checkBounds (int col, int row) {
+        if (col < 0 || col >= cols || row < 0 || row >= rows) {
+            throw new IllegalArgumentException("Cell (" + col + ", " + row + ") is outside of the maze");
+        }
+    }
+
+    /**
+     * Solves the maze as it currently is, as {@link GridSearch#solve()} does,
+     * reusing the search effort of earlier calls.
+     *
+     * @return An ArrayList of Strings representing actions that lead from the
+     * initial to a goal state via the key, of the format: ["R", "R", "L", ...], or
+     * null if there is no such path.
+     */
+    public ArrayList<String> solve () {
+        cost = -1;
+        expansions = 0;
+        if (toKey == null) { return null; }
+        toKey.computeShortestPath();
+        if (toKey.g[toKey.source] == INF) { return null; }
+        toGoal.computeShortestPath();
+        if (toGoal.g[toGoal.source] == INF) { return null; }
+        ArrayList<String> actions = new ArrayList<>();
+        toKey.appendPath(actions);
+        toGoal.appendPath(actions);
+        cost = toKey.g[toKey.source] + toGoal.g[toGoal.source];
+        return actions;
+    }
+
+    /**
+     * @return The cost of the solution found by the last call to {@link #solve()},
+     * or -1 if it found none.
+     */
+    public int getCost () {
+        return cost;
+    }
+
+    /**
+     * @return The number of cells expanded by the last call to {@link #solve()},
+     * over both legs.
+     */
+    public int getExpansions () {
+        return expansions;
+    }
+
+    /**
+     * @return The index of the passable cell one move away from cell, or -1 if
+     * that is a wall or outside of the maze.
+     */
+    private int neighbor (int cell, int move) {
+        int col = cell % cols + MazeProblem.COL_OFFSETS[move], row = cell / cols + MazeProblem.ROW_OFFSETS[move];
+        if (col < 0 || col >= cols || row < 0 || row >= rows) { return -1; }
+        int next = row * cols + col;
+        return (grid.getCost(next) == 0) ? -1 : next;
+    }
+
+    /**
+     * Backward D* Lite search state for one leg of the route, from the leg's
+     * targets towards its source. Since the source never moves, the key modifier
+     * of D* Lite stays 0.
+     */
+    private final class Leg {
+
+        final int source, sourceCol, sourceRow;
+        final int[] g, rhs;
+        final long[] targets;
+        final IndexedMinHeap open;
+
+        Leg (int source, int[] targetCells) {
+            this.source = source;
+            this.sourceCol = source % cols;
+            this.sourceRow = source / cols;
+            this.g = new int[rows * cols];
+            this.rhs = new int[rows * cols];
+            this.targets = new long[(rows * cols + 63) >>> 6];
+            this.open = new IndexedMinHeap(rows * cols);
+            Arrays.fill(g, INF);
+            Arrays.fill(rhs, INF);
+            for (int target : targetCells) {
+                targets[target >>> 6] |= 1L << target;
+                rhs[target] = 0;
+                open.update(target, key(target));
+            }
+        }
+
+        /**
+         * @return The D* Lite key of the given cell: the smaller of its g- and
+         * rhs-values plus the heuristic in the high half, that smaller value alone
+         * (the tie-breaker) in the low half.
+         */
+        long key (int cell) {
+            int value = Math.min(g[cell], rhs[cell]);
+            if (value == INF) { return ((long) INF << 32) | INF; }
+            int h = Math.abs(cell % cols - sourceCol) + Math.abs(cell / cols - sourceRow);
+            return ((long) (value + h) << 32) | value;
+        }
+
+        boolean isTarget (int cell) {
+            return (targets[cell >>> 6] & (1L << cell)) != 0;
+        }
+
+        /**
+         * @return The cheapest cost of reaching a target from cell via one of its
+         * neighbors, as known from their g-values.
+         */
+        int lookahead (int cell) {
+            if (grid.getCost(cell) == 0) { return INF; }
+            int best = INF;
+            for (int move = 0; move < 4; move++) {
+                int next = neighbor(cell, move);
+                if (next >= 0 && g[next] != INF) { best = Math.min(best, grid.getCost(next) + g[next]); }
+            }
+            return best;
+        }
+
+        void updateVertex (int cell) {
+            if (!isTarget(cell)) { rhs[cell] = lookahead(cell); }
+            if (g[cell] != rhs[cell]) {
+                open.update(cell, key(cell));
+            } else {
+                open.remove(cell);
+            }
+        }
+
+        /**
+         * [Mutator] Accounts for a change of the type of the given cell, which
+         * changes the cost of every edge into and out of it.
+         */
+        void cellChanged (int cell) {
+            updateVertex(cell);
+            int col = cell % cols, row = cell / cols;
+            for (int move = 0; move < 4; move++) {
+                int nextCol = col + MazeProblem.COL_OFFSETS[move], nextRow = row + MazeProblem.ROW_OFFSETS[move];
+                if (nextCol >= 0 && nextCol < cols && nextRow >= 0 && nextRow < rows) { updateVertex(nextRow * cols + nextCol); }
+            }
+        }
+
+        void computeShortestPath () {
+            while (open.peekKey() < key(source) || rhs[source] != g[source]) {
+                int cell = open.peekCell();
+                long oldKey = open.peekKey(), newKey = key(cell);
+                expansions++;
+                if (oldKey < newKey) {
+                    open.update(cell, newKey);
+                    continue;
+                }
+                if (g[cell] > rhs[cell]) {
+                    g[cell] = rhs[cell];
+                    open.remove(cell);
+                } else {
+                    g[cell] = INF;
+                    updateVertex(cell);
+                }
+                for (int move = 0; move < 4; move++) {
+                    int next = neighbor(cell, move);
+                    if (next >= 0) { updateVertex(next); }
+                }
+            }
+        }
+
+        /**
+         * Appends the actions that lead from the source down the g-values to a
+         * target.
+         */
+        void appendPath (ArrayList<String> actions) {
+            for (int cell = source; !isTarget(cell); ) {
+                int bestMove = -1, best = INF;
+                for (int move = 0; move < 4; move++) {
+                    int next = neighbor(cell, move);
+                    if (next >= 0 && g[next] != INF && grid.getCost(next) + g[next] < best) {
+                        best = grid.getCost(next) + g[next];
+                        bestMove = move;
+                    }
+                }
+                actions.add(MazeProblem.ACTIONS[bestMove]);
+                cell = neighbor(cell, bestMove);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+package main.pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of cells keyed by primitive longs that, unlike
+ * {@link LongMinHeap}, holds each cell at most once and can change or remove
+ * the key of any cell in logarithmic time, as incremental planners need. The
+ * heap position of every cell is tracked in an array sized to the grid.
+ */
+class IndexedMinHeap {
+
+    private long[] keys;
+    private int[] cells;
+    private final int[] position;
+    private int size;
+
+    /**
+     * Constructs a new, empty IndexedMinHeap for cells 0 to cellCount - 1.
+     */
+    IndexedMinHeap (int cellCount) {
+        this.keys = new long[16];
+        this.cells = new int[16];
+        this.position = new int[cellCount];
+        Arrays.fill(position, -1);
+    }
+
+    boolean contains (int cell) {
+        return position[cell] >= 0;
+    }
+
+    /**
+     * Inserts the given cell with the given key, or changes its key if it is
+     * already in the heap.
+     */
+    void update (int cell, long key) {
+        int i = position[cell];
+        if (i < 0) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * size);
+                cells = Arrays.copyOf(cells, 2 * size);
+            }
+            i = size++;
+        } else if (key > keys[i]) {
+            siftDown(i, cell, key);
+            return;
+        }
+        siftUp(i, cell, key);
+    }
+
+    void remove (int cell) {
+        int i = position[cell];
+        if (i < 0) { return; }
+        position[cell] = -1;
+        int lastCell = cells[--size];
+        long lastKey = keys[size];
+        if (i == size) { return; }
+        if (lastKey < keys[i]) {
+            siftUp(i, lastCell, lastKey);
+        } else {
+            siftDown(i, lastCell, lastKey);
+        }
+    }
+
+    /**
+     * @return The smallest key in the heap, or Long.MAX_VALUE if it is empty.
+     */
+    long peekKey () {
+        return (size == 0) ? Long.MAX_VALUE : keys[0];
+    }
+
+    int peekCell () {
+        return cells[0];
+    }
+
+    boolean isEmpty () {
+        return size == 0;
+    }
+
+    private void siftUp (int i, int cell, long key) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) { break; }
+            place(i, cells[parent], keys[parent]);
+            i = parent;
+        }
+        place(i, cell, key);
+    }
+
+    private void siftDown (int i, int cell, long key) {
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) { child++; }
+            if (key <= keys[child]) { break; }
+            place(i, cells[child], keys[child]);
+            i = child;
+        }
+        place(i, cell, key);
+    }
+
+    private void place (int i, int cell, long key) {
+        cells[i] = cell;
+        keys[i] = key;
+        position[cell] = i;
+    }
+
+}
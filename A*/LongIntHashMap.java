@@ -0,0 +1,85 @@
+package main.pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative long keys to int values, with
+ * linear probing and no boxing, used to hold sparse per-cell search state for
+ * mazes too large for arrays sized to the grid.
+ */
+class LongIntHashMap {
+
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size, mask;
+
+    /**
+     * Constructs a new, empty LongIntHashMap.
+     *
+     * @param capacity Expected number of entries; the map grows as needed.
+     */
+    LongIntHashMap (int capacity) {
+        int slots = Integer.highestOneBit(Math.max(2 * capacity - 1, 16)) << 1;
+        this.keys = new long[slots];
+        this.values = new int[slots];
+        this.mask = slots - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @return The value of the given key, or -1 if it has none.
+     */
+    int get (long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) { return values[slot]; }
+            if (keys[slot] == EMPTY) { return -1; }
+        }
+    }
+
+    void put (long key, int value) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY && keys[slot] != key) { slot = (slot + 1) & mask; }
+        if (keys[slot] == EMPTY) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                put(key, value);
+                return;
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    int size () {
+        return size;
+    }
+
+    void clear () {
+        if (size > 0) {
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+        }
+    }
+
+    private int slot (long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void grow () {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[2 * oldKeys.length];
+        values = new int[2 * oldKeys.length];
+        mask = keys.length - 1;
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) { put(oldKeys[i], oldValues[i]); }
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package main.pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of primitive longs, used as the open list of the primitive
+ * search engines: each entry packs a priority in its high bits and a cell index
+ * in its low bits, so ordering entries orders them by priority and no node
+ * objects are needed.
+ */
+class LongMinHeap {
+
+    private long[] heap;
+    private int size;
+
+    /**
+     * Constructs a new, empty LongMinHeap.
+     *
+     * @param capacity Initial capacity; the heap grows as needed.
+     */
+    LongMinHeap (int capacity) {
+        this.heap = new long[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Packs a priority and a cell index into one heap entry.
+     */
+    static long entry (int priority, int cell) {
+        return ((long) priority << 32) | cell;
+    }
+
+    /**
+     * @return The priority of the given heap entry.
+     */
+    static int priority (long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * @return The cell index of the given heap entry.
+     */
+    static int cell (long entry) {
+        return (int) entry;
+    }
+
+    void push (long value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * size);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) { break; }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    long peek () {
+        return heap[0];
+    }
+
+    long pop () {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0, half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) { child++; }
+            if (last <= heap[child]) { break; }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    /**
+     * @return The i-th entry in heap order, for scans over all entries.
+     */
+    long get (int i) {
+        return heap[i];
+    }
+
+    int size () {
+        return size;
+    }
+
+    boolean isEmpty () {
+        return size == 0;
+    }
+
+    void clear () {
+        size = 0;
+    }
+
+}
@@ -0,0 +1,263 @@
+package main.pathfinder.informed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reusable index for answering many queries against one static MazeProblem in
+ * which only the start changes. It holds two distance fields, computed once by
+ * reverse Dijkstra searches: the cost of the cheapest path from every cell to
+ * the key, and from every cell to the nearest goal. A query then needs no search
+ * at all. It descends each field from cell to cell along a neighbor whose
+ * distance plus entry cost equals the current distance, in time proportional to
+ * the length of the path.
+ * <p>
+ * An index can be saved to disk and loaded back for a problem with the same
+ * maze, so warm starts skip the build.
+ */
+public final class MazeDistanceIndex {
+
+    // Public Static Vars
+    // -----------------------------------------------------------------------------
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Private Static Vars
+    // -----------------------------------------------------------------------------
+    private static final int MAGIC = 0x4D5A4449, VERSION = 1, HEADER_SIZE = 24;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    // Private Fields
+    // -----------------------------------------------------------------------------
+    private final MazeProblem problem;
+    private final MazeGrid grid;
+    private final int rows, cols;
+    private final int[] toKey, toGoal;
+
+
+    // Constructors
+    // -----------------------------------------------------------------------------
+
+    private MazeDistanceIndex (MazeProblem problem, int[] toKey, int[] toGoal) {
+        this.problem = problem;
+        this.grid = problem.getGrid();
+        this.rows = problem.getRows();
+        this.cols = problem.getCols();
+        this.toKey = toKey;
+        this.toGoal = toGoal;
+    }
+
+    /**
+     * Builds the distance fields of the given MazeProblem, the two of them in
+     * parallel.
+     *
+     * @param problem The MazeProblem to index.
+     * @return The index, valid for as long as the problem's maze is unchanged.
+     */
+    public static MazeDistanceIndex build (MazeProblem problem) {
+        int cols = problem.getCols();
+        MazeState key = problem.getKeyState();
+        int[] keys = (key == null) ? new int[0] : new int[] { key.row * cols + key.col };
+        int[] goals = problem.getGoalStates().stream().mapToInt(goal -> goal.row * cols + goal.col).toArray();
+        MazeGrid grid = problem.getGrid();
+        CompletableFuture<int[]> toKey = CompletableFuture.supplyAsync(() -> distanceField(grid, keys));
+        int[] toGoal = distanceField(grid, goals);
+        return new MazeDistanceIndex(problem, toKey.join(), toGoal);
+    }
+
+    /**
+     * Loads an index saved by {@link #save(Path)}.
+     *
+     * @param file Path of the saved index.
+     * @param problem The MazeProblem the index was built for.
+     * @return The loaded index.
+     * @throws IllegalArgumentException If the file is not a saved index, or was
+     * built for a different maze.
+     */
+    public static MazeDistanceIndex load (Path file, MazeProblem problem) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalArgumentException("Not a maze distance index");
+            }
+            if (header.getInt() != problem.getRows() || header.getInt() != problem.getCols()
+                    || header.getLong() != problem.getGrid().checksum()) {
+                throw new IllegalArgumentException("Maze distance index was built for a different maze");
+            }
+            int size = problem.getRows() * problem.getCols();
+            if (channel.size() != HEADER_SIZE + 8L * size) {
+                throw new IllegalArgumentException("Truncated maze distance index");
+            }
+            int[] toKey = new int[size], toGoal = new int[size];
+            readInts(channel, toKey);
+            readInts(channel, toGoal);
+            return new MazeDistanceIndex(problem, toKey, toGoal);
+        }
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Saves this index to the given file, replacing any existing file.
+     *
+     * @param file Path to save the index to.
+     */
+    public void save (Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putLong(grid.checksum());
+            header.flip();
+            while (header.hasRemaining()) { channel.write(header); }
+            writeInts(channel, toKey);
+            writeInts(channel, toGoal);
+        }
+    }
+
+    /**
+     * Solves the indexed MazeProblem from its own initial state, as
+     * {@link #solve(MazeState)} does.
+     */
+    public ArrayList<String> solve () {
+        return solve(problem.getInitialState());
+    }
+
+    /**
+     * Returns an optimal solution from the given start: a cheapest path to the
+     * key, followed by a cheapest path from the key to the nearest goal, as found
+     * by {@link Pathfinder#solve(MazeProblem)}.
+     *
+     * @param start The state to start from.
+     * @return An ArrayList of Strings representing actions that lead from start to
+     * a goal state via the key, of the format: ["R", "R", "L", ...], or null if
+     * there is no such path.
+     */
+    public ArrayList<String> solve (MazeState start) {
+        if (getCost(start) < 0) { return null; }
+        MazeState key = problem.getKeyState();
+        ArrayList<String> actions = new ArrayList<>();
+        descend(toKey, start.row * cols + start.col, actions);
+        descend(toGoal, key.row * cols + key.col, actions);
+        return actions;
+    }
+
+    /**
+     * @param start The state to start from.
+     * @return The cost of the solution from start, or -1 if there is none.
+     */
+    public int getCost (MazeState start) {
+        MazeState key = problem.getKeyState();
+        if (key == null || start.col < 0 || start.col >= cols || start.row < 0 || start.row >= rows) {
+            return -1;
+        }
+        int toKeyCost = toKey[start.row * cols + start.col], fromKeyCost = toGoal[key.row * cols + key.col];
+        return (toKeyCost == UNREACHABLE || fromKeyCost == UNREACHABLE) ? -1 : toKeyCost + fromKeyCost;
+    }
+
+    /**
+     * @return The cost of the cheapest path from the given state to the key, or
+     * {@link #UNREACHABLE}.
+     */
+    public int getDistanceToKey (MazeState state) {
+        return toKey[state.row * cols + state.col];
+    }
+
+    /**
+     * @return The cost of the cheapest path from the given state to the nearest
+     * goal, or {@link #UNREACHABLE}.
+     */
+    public int getDistanceToGoal (MazeState state) {
+        return toGoal[state.row * cols + state.col];
+    }
+
+    /**
+     * Appends the actions that follow the given distance field downhill from cell
+     * to one of the field's sources.
+     */
+    private void descend (int[] field, int cell, ArrayList<String> actions) {
+        while (field[cell] != 0) {
+            int col = cell % cols, row = cell / cols, move = 0, next = -1;
+            for (; move < 4; move++) {
+                int nextCol = col + MazeProblem.COL_OFFSETS[move], nextRow = row + MazeProblem.ROW_OFFSETS[move];
+                if (nextCol < 0 || nextCol >= cols || nextRow < 0 || nextRow >= rows) { continue; }
+                next = nextRow * cols + nextCol;
+                int cost = grid.getCost(next);
+                if (cost != 0 && field[next] != UNREACHABLE && field[next] + cost == field[cell]) { break; }
+            }
+            actions.add(MazeProblem.ACTIONS[move]);
+            cell = next;
+        }
+    }
+
+    /**
+     * Runs Dijkstra backwards from the given source cells: the distance of a cell
+     * is the cost of the cheapest path from it to any source, where stepping from
+     * a cell into a neighbor costs the neighbor's cost.
+     *
+     * @return The distance of every cell, {@link #UNREACHABLE} for cells with no
+     * path to a source.
+     */
+    private static int[] distanceField (MazeGrid grid, int[] sources) {
+        int rows = grid.getRows(), cols = grid.getCols();
+        int[] dist = new int[rows * cols];
+        Arrays.fill(dist, UNREACHABLE);
+        LongMinHeap open = new LongMinHeap(Math.max(rows, cols) * 4);
+        for (int source : sources) {
+            dist[source] = 0;
+            open.push(LongMinHeap.entry(0, source));
+        }
+        while (!open.isEmpty()) {
+            long entry = open.pop();
+            int cell = LongMinHeap.cell(entry), d = LongMinHeap.priority(entry);
+            if (d > dist[cell]) { continue; }
+            int col = cell % cols, row = cell / cols, stepCost = d + grid.getCost(cell);
+            for (int move = 0; move < 4; move++) {
+                int prevCol = col + MazeProblem.COL_OFFSETS[move], prevRow = row + MazeProblem.ROW_OFFSETS[move];
+                if (prevCol < 0 || prevCol >= cols || prevRow < 0 || prevRow >= rows) { continue; }
+                int prev = prevRow * cols + prevCol;
+                if (grid.getCost(prev) != 0 && stepCost < dist[prev]) {
+                    dist[prev] = stepCost;
+                    open.push(LongMinHeap.entry(stepCost, prev));
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static void writeInts (FileChannel channel, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        IntBuffer ints = buffer.asIntBuffer();
+        for (int from = 0; from < values.length; from += CHUNK_SIZE / 4) {
+            int length = Math.min(CHUNK_SIZE / 4, values.length - from);
+            ints.clear();
+            ints.put(values, from, length);
+            buffer.clear().limit(4 * length);
+            while (buffer.hasRemaining()) { channel.write(buffer); }
+        }
+    }
+
+    private static void readInts (FileChannel channel, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        IntBuffer ints = buffer.asIntBuffer();
+        for (int from = 0; from < values.length; from += CHUNK_SIZE / 4) {
+            int length = Math.min(CHUNK_SIZE / 4, values.length - from);
+            buffer.clear().limit(4 * length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) { throw new IllegalArgumentException("Truncated maze distance index"); }
+            }
+            ints.clear();
+            ints.get(values, from, length);
+        }
+    }
+
+}
@@ -0,0 +1,244 @@
+package main.pathfinder.informed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Compact backing store for a maze grid: every cell is a 4-bit type packed 16 to
+ * a long, row-major, so a maze takes half a byte per cell instead of the 2 bytes
+ * per char (plus String overhead) of a String[] maze. Cells are addressed either
+ * by (col, row) or by their index {@code row * cols + col}.
+ */
+public final class MazeGrid {
+
+    // Public Static Vars
+    // -----------------------------------------------------------------------------
+    public static final int OPEN = 0, WALL = 1, MUD = 2, GOAL = 3, KEY = 4, INITIAL = 5;
+
+    // Private Static Vars
+    // -----------------------------------------------------------------------------
+    private static final String TYPE_CHARS = ".XMGKI";
+    private static final byte[] TYPE_BY_CHAR = createTypeTable();
+
+    /**
+     * Cost of entering a cell of each type, one nibble per type (type 0 in the
+     * lowest nibble); walls cost 0, which doubles as the wall test.
+     */
+    private static final int COSTS = 0x111301;
+    private static final long WINDOW_SIZE = 1L << 26;
+
+    /**
+     * @return Lookup table from ASCII maze characters to cell types, -1 for
+     * characters that are not maze characters.
+     */
+    private static byte[] createTypeTable () {
+        byte[] table = new byte[128];
+        Arrays.fill(table, (byte) -1);
+        for (int type = 0; type < TYPE_CHARS.length(); type++) {
+            table[TYPE_CHARS.charAt(type)] = (byte) type;
+        }
+        return table;
+    }
+
+    // Private Fields
+    // -----------------------------------------------------------------------------
+    private final int rows, cols;
+    private final long[] cells;
+
+
+    // Constructors
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new MazeGrid of the given size, every cell of which is open.
+     *
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     */
+    public MazeGrid (int rows, int cols) {
+        if (rows < 0 || cols < 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maze dimensions out of range");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = new long[(int) (((long) rows * cols + 15) >>> 4)];
+    }
+
+    private MazeGrid (int rows, int cols, long[] cells) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = cells;
+    }
+
+    /**
+     * Packs a maze given as an array of Strings, in the format accepted by
+     * {@link MazeProblem#MazeProblem(String[])}.
+     *
+     * @param maze An array of equal-length Strings of maze characters.
+     * @return The packed maze.
+     * @throws IllegalArgumentException If the maze contains an invalid character.
+     */
+    public static MazeGrid parse (String[] maze) {
+        int rows = maze.length, cols = (rows == 0) ? 0 : maze[0].length();
+        MazeGrid grid = new MazeGrid(rows, cols);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                grid.set(col, row, typeOf(maze[row].charAt(col)));
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Loads a maze file, one row of maze characters per line, straight from a
+     * memory mapping of the file into the packed representation, without
+     * materializing any Strings. Lines may end with "\n" or "\r\n".
+     *
+     * @param file Path of the maze file.
+     * @return The packed maze.
+     * @throws IllegalArgumentException If the rows differ in length or the maze
+     * contains an invalid character.
+     */
+    public static MazeGrid load (Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] cells = new long[16];
+            int cols = -1, col = 0, row = 0;
+            long cell = 0;
+            for (long start = 0; start < size; start += WINDOW_SIZE) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(WINDOW_SIZE, size - start));
+                while (window.hasRemaining()) {
+                    byte b = window.get();
+                    if (b == '\r') { continue; }
+                    if (b == '\n') {
+                        if (col == 0) { continue; }
+                        if (cols < 0) { cols = col; }
+                        if (col != cols) { throw new IllegalArgumentException("Maze row " + row + " has the wrong length"); }
+                        row++;
+                        col = 0;
+                        continue;
+                    }
+                    if ((cell >>> 4) >= cells.length) {
+                        if (cell >= Integer.MAX_VALUE) { throw new IllegalArgumentException("Maze dimensions out of range"); }
+                        cells = Arrays.copyOf(cells, 2 * cells.length);
+                    }
+                    cells[(int) (cell >>> 4)] |= (long) typeOf((char) b) << ((cell & 15) << 2);
+                    cell++;
+                    col++;
+                }
+            }
+            if (col > 0) {
+                if (cols >= 0 && col != cols) { throw new IllegalArgumentException("Maze row " + row + " has the wrong length"); }
+                cols = col;
+                row++;
+            }
+            cols = Math.max(cols, 0);
+            return new MazeGrid(row, cols, Arrays.copyOf(cells, (int) ((cell + 15) >>> 4)));
+        }
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    public int getRows () {
+        return rows;
+    }
+
+    public int getCols () {
+        return cols;
+    }
+
+    /**
+     * @return The type (OPEN, WALL, ...) of the cell with the given index.
+     */
+    public int get (int index) {
+        return (int) (cells[index >>> 4] >>> ((index & 15) << 2)) & 15;
+    }
+
+    /**
+     * @return The type (OPEN, WALL, ...) of the cell at (col, row).
+     */
+    public int get (int col, int row) {
+        return get(row * cols + col);
+    }
+
+    /**
+     * Returns the cost of entering the cell with the given index, which is 0 for
+     * walls: {@code getCost(index) == 0} is the (branch-free) wall test.
+     *
+     * @param index Index of a cell within the grid.
+     * @return 3 for mud, 0 for walls, 1 otherwise.
+     */
+    public int getCost (int index) {
+        return (COSTS >>> (get(index) << 2)) & 15;
+    }
+
+    /**
+     * Returns whether the given position is a wall or outside of the grid.
+     */
+    public boolean isWall (int col, int row) {
+        return row < 0 || row >= rows || col < 0 || col >= cols || get(row * cols + col) == WALL;
+    }
+
+    /**
+     * [Mutator] Sets the type of the cell at (col, row).
+     */
+    void set (int col, int row, int type) {
+        int index = row * cols + col, shift = (index & 15) << 2;
+        cells[index >>> 4] = (cells[index >>> 4] & ~(15L << shift)) | ((long) type << shift);
+    }
+
+    /**
+     * @return CRC-32 of the dimensions and cells of this grid, to tell whether data
+     * derived from a grid still matches it.
+     */
+    long checksum () {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        buffer.putInt(rows).putInt(cols);
+        for (long packed : cells) {
+            if (!buffer.hasRemaining()) {
+                crc.update(buffer.flip());
+                buffer.clear();
+            }
+            buffer.putLong(packed);
+        }
+        crc.update(buffer.flip());
+        return crc.getValue();
+    }
+
+    /**
+     * @return An independent copy of this grid.
+     */
+    MazeGrid copy () {
+        return new MazeGrid(rows, cols, cells.clone());
+    }
+
+    /**
+     * @return The cell type denoted by the given maze character.
+     * @throws IllegalArgumentException If the character is not a maze character.
+     */
+    public static int typeOf (char c) {
+        int type = (c < TYPE_BY_CHAR.length) ? TYPE_BY_CHAR[c] : -1;
+        if (type < 0) {
+            throw new IllegalArgumentException("Maze formatted invalidly");
+        }
+        return type;
+    }
+
+    /**
+     * @return The maze character denoting the given cell type.
+     */
+    public static char charOf (int type) {
+        return TYPE_CHARS.charAt(type);
+    }
+
+}
@@ -9,6 +9,24 @@ import java.util.*;
  */
 public class MazeProblem {
 
+    // Public Static Vars
+    // -----------------------------------------------------------------------------
+    /**
+     * Action codes written by {@link #getTransitions(int, int[])}, and the number of
+     * ints a transition buffer needs to hold the transitions of any cell.
+     */
+    public static final int UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3;
+    public static final int TRANSITION_BUFFER_SIZE = 12;
+    
+    /**
+     * The action, column offset and row offset of every action code: the one
+     * table of directions shared by the search engines of this package, which
+     * rely on its order (vertical codes below 2, opposite codes differing in the
+     * lowest bit).
+     */
+    static final String[] ACTIONS = {"U", "D", "L", "R"};
+    static final int[] COL_OFFSETS = {0, 0, -1, 1}, ROW_OFFSETS = {-1, 1, 0, 0};
+    
     // Public Fields
     // -----------------------------------------------------------------------------
     private final MazeState INITIAL_STATE, KEY_STATE;
@@ -16,8 +34,8 @@ public class MazeProblem {
     
     // Private Fields
     // -----------------------------------------------------------------------------
-    private String[] maze;
-    private int rows, cols;
+    private final MazeGrid grid;
+    private final int rows, cols;
     
     // Private Static Vars
     // -----------------------------------------------------------------------------
@@ -30,10 +48,9 @@ public class MazeProblem {
      */
     private static final Map<String, MazeState> createTransitions () {
         Map<String, MazeState> result = new HashMap<>();
-        result.put("U", new MazeState(0, -1));
-        result.put("D", new MazeState(0,  1));
-        result.put("L", new MazeState(-1, 0));
-        result.put("R", new MazeState( 1, 0));
+        for (int action = UP; action <= RIGHT; action++) {
+            result.put(ACTIONS[action], new MazeState(COL_OFFSETS[action], ROW_OFFSETS[action]));
+        }
         return result;
     }
     
@@ -61,9 +78,21 @@ public class MazeProblem {
      * </pre>
      */
     public MazeProblem (String[] maze) {
-        this.maze = maze;
-        this.rows = maze.length;
-        this.cols = (rows == 0) ? 0 : maze[0].length();
+        this(MazeGrid.parse(maze));
+    }
+    
+    /**
+     * Constructs a new MazeProblem from the given packed maze, e.g., one loaded
+     * from a file with {@link MazeGrid#load(java.nio.file.Path)}; responsible for
+     * finding the initial and goal states in the maze, and storing in the
+     * MazeProblem state.
+     * 
+     * @param grid The packed maze. It must not be modified afterwards.
+     */
+    public MazeProblem (MazeGrid grid) {
+        this.grid = grid;
+        this.rows = grid.getRows();
+        this.cols = grid.getCols();
         MazeState foundInitial = null, foundKey = null;
         Set<MazeState> goals = new HashSet<>();
         
@@ -71,19 +100,15 @@ public class MazeProblem {
         // store in fields once found
         for (int row = 0; row < rows; row++) {
             for (int col = 0; col < cols; col++) {
-                switch (maze[row].charAt(col)) {
-                case 'I':
+                switch (grid.get(col, row)) {
+                case MazeGrid.INITIAL:
                     foundInitial = new MazeState(col, row); break;
-                case 'G':
+                case MazeGrid.GOAL:
                     goals.add(new MazeState(col, row)); break;
-                case 'K':
+                case MazeGrid.KEY:
                     foundKey = new MazeState(col, row); break;
-                case '.':
-                case 'X':
-                case 'M':
-                    break;
                 default:
-                    throw new IllegalArgumentException("Maze formatted invalidly");
+                    break;
                 }
             }
         }
@@ -140,10 +165,50 @@ public class MazeProblem {
      * @return The cost associated with moving into the given state.
      */
     public int getCost (MazeState state) {
-        switch(maze[state.row].charAt(state.col)) {
-            case 'M': return 3;
-            default: return 1;
-        }
+        return getCost(state.col, state.row);
+    }
+    
+    /**
+     * @return The number of rows in this maze.
+     */
+    int getRows () {
+        return this.rows;
+    }
+    
+    /**
+     * @return The number of columns in this maze.
+     */
+    int getCols () {
+        return this.cols;
+    }
+    
+    /**
+     * Returns whether the given position is a wall (or outside of the maze).
+     * 
+     * @param col Column of the position.
+     * @param row Row of the position.
+     * @return Whether the position can not be moved into.
+     */
+    boolean isWall (int col, int row) {
+        return grid.isWall(col, row);
+    }
+    
+    /**
+     * Returns the cost associated with entering the given position.
+     * 
+     * @param col Column of the position.
+     * @param row Row of the position.
+     * @return The cost associated with moving into the position.
+     */
+    int getCost (int col, int row) {
+        return (grid.get(col, row) == MazeGrid.MUD) ? 3 : 1;
+    }
+    
+    /**
+     * @return The packed maze backing this problem.
+     */
+    MazeGrid getGrid () {
+        return this.grid;
     }
     
     /**
@@ -160,26 +225,61 @@ public class MazeProblem {
         // Store transitions as a Map between actions ("U", "D", ...) and
         // the MazeStates that they result in from state
         Map<String, MazeState> result = new HashMap<>();
-        
-        // For each of the possible directions (stored in TRANS_MAP), test
-        // to see if it is a valid transition
-        for (Map.Entry<String, MazeState> action : TRANS_MAP.entrySet()) {
-            MazeState actionMod = action.getValue(),
-                      newState  = new MazeState(state.col, state.row);
-            newState.add(actionMod);
-            
-            // If the given state *is* a valid transition (i.e., within
-            // map bounds and no wall at the position)...
-            if (newState.row >= 0 && newState.row < rows &&
-                newState.col >= 0 && newState.col < cols &&
-                maze[newState.row].charAt(newState.col) != 'X') {
-                // ...then add it to the result!
-                result.put(action.getKey(), newState);
-            }
+        int[] buffer = new int[TRANSITION_BUFFER_SIZE];
+        int count = getTransitions(getIndex(state), buffer);
+        for (int i = 0; i < 3 * count; i += 3) {
+            result.put(ACTIONS[buffer[i + 2]], getState(buffer[i]));
         }
         return result;
     }
     
+    /**
+     * Allocation-free variant of {@link #getTransitions(MazeState)} for search
+     * engines that work on cell indices (see {@link #getIndex(MazeState)}): writes
+     * one (neighbor cell index, cost of entering it, action code) triple per valid
+     * transition from the given cell into buffer, in the order UP, DOWN, LEFT, RIGHT.
+     * 
+     * @param cell Index of the cell from which actions are taken.
+     * @param buffer Buffer of at least {@link #TRANSITION_BUFFER_SIZE} ints to
+     * write the transitions into, starting at index 0.
+     * @return The number of transitions written.
+     */
+    public int getTransitions (int cell, int[] buffer) {
+        int col = cell % cols, row = cell / cols, count = 0;
+        for (int action = UP; action <= RIGHT; action++) {
+            int nextCol = col + COL_OFFSETS[action], nextRow = row + ROW_OFFSETS[action];
+            if (nextCol < 0 || nextCol >= cols || nextRow < 0 || nextRow >= rows) { continue; }
+            int next = nextRow * cols + nextCol, cost = grid.getCost(next);
+            if (cost == 0) { continue; }
+            buffer[3 * count] = next;
+            buffer[3 * count + 1] = cost;
+            buffer[3 * count + 2] = action;
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * @return The index of the cell of the given state, {@code row * cols + col}.
+     */
+    public int getIndex (MazeState state) {
+        return state.row * cols + state.col;
+    }
+    
+    /**
+     * @return A new MazeState for the cell with the given index.
+     */
+    public MazeState getState (int cell) {
+        return new MazeState(cell % cols, cell / cols);
+    }
+    
+    /**
+     * @return The action ("U", "D", "L" or "R") denoted by the given action code.
+     */
+    public static String getAction (int action) {
+        return ACTIONS[action];
+    }
+    
     /**
      * Given a possibleSoln, tests to ensure that it is indeed a solution to this MazeProblem,
      * as well as returning the cost.
@@ -202,11 +302,11 @@ public class MazeProblem {
         for (String action : possibleSoln) {
             MazeState actionMod = TRANS_MAP.get(action);
             movingState.add(actionMod);
-            switch (maze[movingState.row].charAt(movingState.col)) {
-            case 'X':
+            if (grid.isWall(movingState.col, movingState.row)) {
                 return new MazeTestResult(false, -1);
-            case 'K':
-                hasKey = true; break;
+            }
+            if (grid.get(movingState.col, movingState.row) == MazeGrid.KEY) {
+                hasKey = true;
             }
             cost += getCost(movingState);
         }
@@ -1,6 +1,8 @@
 package main.pathfinder.informed;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 //import main.pathfinder.uninformed.MazeState;
 //import main.pathfinder.uninformed.SearchTreeNode;
@@ -21,47 +23,98 @@ public class Pathfinder {
      */
 	public static ArrayList<String> solve (MazeProblem problem) {
 	
-	    SearchTreeNode start = new SearchTreeNode(problem.getInitialState(), null, null, 0, manhattanDistance(problem.getInitialState(), problem.getKeyState()));
-	    SearchTreeNode path = aStar(problem, start, problem.getKeyState());
-	    ArrayList<String> initialPath = solution(path);
-	    System.out.println(initialPath);
-	    SearchTreeNode closestGoal = null;
-	    int pathCost = 1000000;
-	    for(MazeState goalState : problem.getGoalStates()) {
-	    	 SearchTreeNode keyNode = new SearchTreeNode(problem.getKeyState(), null, null, 0, manhattanDistance(problem.getKeyState(), goalState));
-	    	 SearchTreeNode goal = aStar(problem, keyNode, goalState);
-	    	 if(goal == null) {
-	    		 return null;
-	    	 }
-	    	 if(goal.pastCost < pathCost) {
-	    			closestGoal = goal;
-	    			
-	    	 }
+	    MazeState key = problem.getKeyState();
+	    if(key == null) {
+	    	return null;
+	    }
+	    SearchTreeNode keyNode = aStar(problem, problem.getInitialState(), Collections.singleton(key));
+	    if(keyNode == null) {
+	    	return null;
+	    }
+	    ArrayList<String> initialPath = solution(keyNode);
+	    // One search towards every goal at once: the first goal popped off the
+	    // frontier is the cheapest one to reach from the key.
+	    SearchTreeNode closestGoal = aStar(problem, key, problem.getGoalStates());
+	    if(closestGoal == null) {
+	    	return null;
 	    }
 	    initialPath.addAll(solution(closestGoal));
 	    return initialPath;
 	}
 
-    private static SearchTreeNode aStar(MazeProblem problem, SearchTreeNode start, MazeState targetState) {
+    /**
+     * Solves the given MazeProblem as {@link #solve(MazeProblem)} does, on the
+     * primitive {@link GridSearch} engine, reporting the metrics of both legs to the
+     * given listener.
+     * 
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param listener The listener to report the metrics of each leg to.
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     */
+	public static ArrayList<String> solve (MazeProblem problem, SearchListener listener) {
+		GridSearch search = new GridSearch(problem);
+		search.setListener(listener);
+		return search.solve();
+	}
+
+    /**
+     * Solves the given MazeProblem with weighted A*, trading solution quality for
+     * speed; see {@link GridSearch#solveWeighted(double)}.
+     * 
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param weight The heuristic weight, at least 1.
+     * @return The solution found with its cost and proven suboptimality bound.
+     */
+	public static GridSearch.BoundedResult solveWeighted (MazeProblem problem, double weight) {
+		return new GridSearch(problem).solveWeighted(weight);
+	}
+
+    /**
+     * Solves the given MazeProblem with anytime ARA*, improving the solution until
+     * it is proven optimal or the time budget runs out; see
+     * {@link GridSearch#solveAnytime(double, long)}.
+     * 
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param initialWeight The heuristic weight of the first iteration, at least 1.
+     * @param budgetNanos The time to spend improving the solution, in nanoseconds.
+     * @return The best solution found with its cost and proven suboptimality bound.
+     */
+	public static GridSearch.BoundedResult solveAnytime (MazeProblem problem, double initialWeight, long budgetNanos) {
+		return new GridSearch(problem).solveAnytime(initialWeight, budgetNanos);
+	}
+
+    /**
+     * A* search from start to the cheapest to reach of the given target states.
+     * With up to {@link GridSearch#MAX_HEURISTIC_TARGETS} targets the heuristic is the
+     * Manhattan distance to the nearest target; with more it is 0 (Dijkstra).
+     *
+     * @return The node of the target reached, or null if no target is reachable.
+     */
+    private static SearchTreeNode aStar(MazeProblem problem, MazeState start, Set<MazeState> targets) {
     	
     	PriorityQueue<SearchTreeNode> frontier = new PriorityQueue<>();
     	HashSet<MazeState> graveyard = new HashSet<MazeState>();
-    	frontier.add(start);
+    	int[] transitions = new int[MazeProblem.TRANSITION_BUFFER_SIZE];
+    	boolean informed = targets.size() <= GridSearch.MAX_HEURISTIC_TARGETS;
+    	frontier.add(new SearchTreeNode(start, null, null, 0, informed ? manhattanDistance(start, targets) : 0));
     	while(!frontier.isEmpty()){
     		SearchTreeNode parent = frontier.poll();
-    		graveyard.add(parent.state);
+    		if(!graveyard.add(parent.state)) {
+    			continue;
+    		}
     	
-    		if(parent.state.equals(targetState)) {
+    		if(targets.contains(parent.state)) {
     			return parent;
     		}
-    		for(Map.Entry<String, MazeState> transition : problem.getTransitions(parent.state).entrySet()){
-    			if(!graveyard.contains(transition.getValue())) {
-    				MazeState childState = transition.getValue();
-    				String action = transition.getKey();
-    				MazeState target = problem.getKeyState();
-    				int previousCost = parent.pastCost + problem.getCost(transition.getValue());
+    		int count = problem.getTransitions(problem.getIndex(parent.state), transitions);
+    		for(int i = 0; i < 3 * count; i += 3){
+    			MazeState childState = problem.getState(transitions[i]);
+    			if(!graveyard.contains(childState)) {
+    				String action = MazeProblem.getAction(transitions[i + 2]);
+    				int previousCost = parent.pastCost + transitions[i + 1];
     				
-    				SearchTreeNode childNode = new SearchTreeNode(childState, action, parent, previousCost, manhattanDistance(childState, target));
+    				SearchTreeNode childNode = new SearchTreeNode(childState, action, parent, previousCost, informed ? manhattanDistance(childState, targets) : 0);
     				frontier.add(childNode);
     			}
     		}
@@ -69,6 +122,14 @@ public class Pathfinder {
     	return null;
 	}
 
+	private static int manhattanDistance(MazeState current, Set<MazeState> targets) {
+		int distance = Integer.MAX_VALUE;
+		for(MazeState target : targets) {
+			distance = Math.min(distance, manhattanDistance(current, target));
+		}
+		return distance;
+	}
+
 	private static int manhattanDistance(MazeState current, MazeState target) {
 		int distance = Math.abs(current.col - target.col) + Math.abs(current.row - target.row);
 		return distance;
@@ -83,7 +144,119 @@ public class Pathfinder {
 			solution.add(0, finalNode.action);
 			finalNode = finalNode.parent;
 		}
-		System.out.println(solution.toString());
 		return solution;
 	}
+
+    /**
+     * Solves every given MazeProblem on the given executor, e.g. a ForkJoinPool or
+     * a virtual-thread-per-task executor.
+     * Queries run on {@link GridSearch} engines (optimal, like {@link #solve(MazeProblem)})
+     * whose per-cell scratch buffers are reused from query to query, one engine per
+     * concurrently running query. The engines are pooled for this call only; use
+     * {@link #solveAll(Collection, Executor, SearchPool)} to reuse them across calls.
+     * 
+     * @param problems The MazeProblems to solve.
+     * @param executor The executor to run the queries on.
+     * @return One PathResult per problem, in the iteration order of problems.
+     */
+	public static List<PathResult> solveAll (Collection<MazeProblem> problems, Executor executor) {
+		return solveAll(problems, executor, new SearchPool());
+	}
+
+    /**
+     * Solves every given MazeProblem on the given executor as
+     * {@link #solveAll(Collection, Executor)}, taking engines from and returning
+     * them to the given pool, so that their buffers outlive the call.
+     * 
+     * @param problems The MazeProblems to solve.
+     * @param executor The executor to run the queries on.
+     * @param pool The pool of engines to run the queries with.
+     * @return One PathResult per problem, in the iteration order of problems.
+     */
+	public static List<PathResult> solveAll (Collection<MazeProblem> problems, Executor executor, SearchPool pool) {
+		List<CompletableFuture<PathResult>> futures = new ArrayList<>(problems.size());
+		for(MazeProblem problem : problems) {
+			futures.add(CompletableFuture.supplyAsync(() -> solvePooled(pool, problem, problem.getInitialState()), executor));
+		}
+		return joinAll(futures);
+	}
+
+    /**
+     * Solves one MazeProblem from each of the given starts, in place of its initial
+     * state, on the given executor; otherwise as {@link #solveAll(Collection, Executor)}.
+     * 
+     * @param problem The MazeProblem to solve.
+     * @param starts The states to start from.
+     * @param executor The executor to run the queries on.
+     * @return One PathResult per start, in the iteration order of starts.
+     */
+	public static List<PathResult> solveAll (MazeProblem problem, Collection<MazeState> starts, Executor executor) {
+		return solveAll(problem, starts, executor, new SearchPool());
+	}
+
+    /**
+     * Solves one MazeProblem from each of the given starts as
+     * {@link #solveAll(MazeProblem, Collection, Executor)}, taking engines from and
+     * returning them to the given pool, so that their buffers outlive the call.
+     * 
+     * @param problem The MazeProblem to solve.
+     * @param starts The states to start from.
+     * @param executor The executor to run the queries on.
+     * @param pool The pool of engines to run the queries with.
+     * @return One PathResult per start, in the iteration order of starts.
+     */
+	public static List<PathResult> solveAll (MazeProblem problem, Collection<MazeState> starts, Executor executor, SearchPool pool) {
+		List<CompletableFuture<PathResult>> futures = new ArrayList<>(starts.size());
+		for(MazeState start : starts) {
+			futures.add(CompletableFuture.supplyAsync(() -> solvePooled(pool, problem, start), executor));
+		}
+		return joinAll(futures);
+	}
+
+	private static PathResult solvePooled (SearchPool pool, MazeProblem problem, MazeState start) {
+		GridSearch search = pool.acquire(problem);
+		try {
+			return solveTimed(search, start);
+		} finally {
+			pool.release(search);
+		}
+	}
+
+	private static PathResult solveTimed (GridSearch search, MazeState start) {
+		long begin = System.nanoTime();
+		ArrayList<String> actions = search.solve(start, SearchMode.A_STAR);
+		return new PathResult(actions, search.getSolutionCost(), System.nanoTime() - begin);
+	}
+
+	private static List<PathResult> joinAll (List<CompletableFuture<PathResult>> futures) {
+		List<PathResult> results = new ArrayList<>(futures.size());
+		for(CompletableFuture<PathResult> future : futures) {
+			results.add(future.join());
+		}
+		return results;
+	}
+
+    /**
+     * Public inner class serving as a tuple for the results of the batch solveAll
+     * methods. Contains the solution found for one query (null if there is none), its
+     * cost (-1 if there is none), and the time spent solving it.
+     */
+	public static class PathResult {
+
+		public final ArrayList<String> ACTIONS;
+		public final int COST;
+		public final long NANOS;
+
+        /**
+         * Constructor for a PathResult.
+         * @param actions The solution found, or null if there is none.
+         * @param cost Total cost of the solution if there is one, -1 otherwise.
+         * @param nanos Wall-clock time spent solving, in nanoseconds.
+         */
+		public PathResult (ArrayList<String> actions, int cost, long nanos) {
+			this.ACTIONS = actions;
+			this.COST = cost;
+			this.NANOS = nanos;
+		}
+	}
 }
@@ -0,0 +1,89 @@
+package main.pathfinder.informed;
+
+/**
+ * Receives the metrics of every search leg run by a {@link GridSearch}: nodes
+ * expanded and generated, peak frontier size, reopened nodes, heuristic
+ * evaluations and wall time. Implementations can forward them to any telemetry
+ * system. They are called on the searching thread, so they should return quickly.
+ */
+@FunctionalInterface
+public interface SearchListener {
+
+    /**
+     * Leg numbers: from the start to the key, and from the key to a goal.
+     */
+    int START_TO_KEY = 0, KEY_TO_GOAL = 1;
+
+    /**
+     * Listener that ignores all metrics. A GridSearch with this listener does not
+     * read the clock or create LegStats objects.
+     */
+    SearchListener NONE = stats -> { };
+
+    /**
+     * Called after every search leg, whether it found a path or not.
+     *
+     * @param stats The metrics of the leg.
+     */
+    void legCompleted (LegStats stats);
+
+    /**
+     * Public inner class serving as a tuple for the metrics of one search leg.
+     */
+    public static class LegStats {
+
+        /**
+         * {@link SearchListener#START_TO_KEY} or {@link SearchListener#KEY_TO_GOAL}.
+         */
+        public final int LEG;
+        public final SearchMode MODE;
+
+        /**
+         * Nodes taken off the open list and expanded (targets excluded).
+         */
+        public final int EXPANDED;
+
+        /**
+         * Entries pushed onto the open list, the start included.
+         */
+        public final int GENERATED;
+
+        /**
+         * Largest number of entries on the open list(s) at any one time, stale
+         * entries included.
+         */
+        public final int PEAK_FRONTIER;
+
+        /**
+         * Nodes pushed again after their g-score improved while they were still
+         * open, each leaving a stale entry behind. With the consistent heuristics
+         * used here, closed nodes are never reopened.
+         */
+        public final int REOPENED;
+        public final int HEURISTIC_EVALUATIONS;
+        public final long NANOS;
+
+        /**
+         * Constructor for a LegStats, taking every metric in declaration order.
+         */
+        public LegStats (int leg, SearchMode mode, int expanded, int generated, int peakFrontier,
+                int reopened, int heuristicEvaluations, long nanos) {
+            this.LEG = leg;
+            this.MODE = mode;
+            this.EXPANDED = expanded;
+            this.GENERATED = generated;
+            this.PEAK_FRONTIER = peakFrontier;
+            this.REOPENED = reopened;
+            this.HEURISTIC_EVALUATIONS = heuristicEvaluations;
+            this.NANOS = nanos;
+        }
+
+        @Override
+        public String toString () {
+            return "LegStats[leg=" + LEG + ", mode=" + MODE + ", expanded=" + EXPANDED + ", generated=" + GENERATED
+                    + ", peakFrontier=" + PEAK_FRONTIER + ", reopened=" + REOPENED + ", heuristicEvaluations="
+                    + HEURISTIC_EVALUATIONS + ", nanos=" + NANOS + "]";
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package main.pathfinder.informed;
+
+/**
+ * Search strategies selectable per call on a {@link GridSearch}.
+ */
+public enum SearchMode {
+
+    /**
+     * Plain A*: every expansion generates the (up to) four neighboring cells.
+     */
+    A_STAR,
+
+    /**
+     * Jump Point Search: straight runs of open, cost-1 cells are crossed in single
+     * jumps, and only cells next to walls, mud or a target are generated. Mud
+     * cells and their neighbors are expanded as in plain A*. Solutions are as
+     * cheap as A*'s.
+     */
+    JUMP_POINT,
+
+    /**
+     * Bidirectional A*: a forward search from the start and a backward search
+     * from the targets, meeting in the middle. Expands fewer nodes than A* on
+     * long, open routes. Solutions are as cheap as A*'s.
+     */
+    BIDIRECTIONAL
+
+}
@@ -0,0 +1,74 @@
+package main.pathfinder.informed;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of idle {@link GridSearch} engines for the batch solveAll calls of
+ * {@link Pathfinder}. Engines keep their per-cell scratch buffers across the
+ * queries they serve, but drop every reference to a maze when they go back into
+ * the pool. The caller owns the pool: keep it across batches to reuse the buffers,
+ * and {@link #clear()} it or let it go to free them.
+ */
+public final class SearchPool {
+
+    private final ConcurrentLinkedQueue<GridSearch> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int capacity;
+
+    /**
+     * Constructs a new, empty SearchPool that keeps at most one idle engine per
+     * available processor.
+     */
+    public SearchPool () {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new, empty SearchPool.
+     *
+     * @param capacity The most idle engines to keep; engines returned beyond it
+     * are discarded.
+     */
+    public SearchPool (int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative pool capacity: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * [Mutator] Discards every idle engine, freeing its scratch buffers.
+     */
+    public void clear () {
+        while (idle.poll() != null) {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Takes an idle engine bound to the given problem, or a new one if none is idle.
+     */
+    GridSearch acquire (MazeProblem problem) {
+        GridSearch search = idle.poll();
+        if (search == null) {
+            return new GridSearch(problem);
+        }
+        idleCount.decrementAndGet();
+        search.bind(problem);
+        return search;
+    }
+
+    /**
+     * Unbinds the given engine from its problem and keeps it, unless the pool is full.
+     */
+    void release (GridSearch search) {
+        search.unbind();
+        if (idleCount.incrementAndGet() <= capacity) {
+            idle.offer(search);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+}
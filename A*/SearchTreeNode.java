@@ -36,8 +36,9 @@ class SearchTreeNode implements Comparable<SearchTreeNode> {
 
     @Override
     public int compareTo(SearchTreeNode n) {
-    	return this.futureCost - n.futureCost;
-    } //higher cost nodes should be sent to the back
+    	int f = this.pastCost + this.futureCost, otherF = n.pastCost + n.futureCost;
+    	return (f != otherF) ? Integer.compare(f, otherF) : Integer.compare(this.futureCost, n.futureCost);
+    } //higher cost nodes should be sent to the back; ties go to the node closer to a target
     
     /*public int manhattan(SearchTreeNode target){
     	int distance = Math.abs(this.state.col - target.state.col) + Math.abs(this.state.row - target.state.row);
@@ -83,4 +84,4 @@ class SearchTreeNode implements Comparable<SearchTreeNode> {
     
     // [!] TODO: Any methods you wish to define, private or otherwise
     
-}
\ No newline at end of file
+}
\ No newline at end of file
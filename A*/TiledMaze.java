@@ -0,0 +1,341 @@
+package main.pathfinder.informed;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maze stored on disk in square tiles, for mazes too large to keep in memory.
+ * Cells are packed 4 bits each, 16 to a long, row-major within their tile, as
+ * in {@link MazeGrid}. Tiles consisting of a single cell type are not stored at
+ * all. A tile index at the end of the file gives the file offset of every
+ * stored tile and the type of every uniform one, and is followed by the
+ * locations of the initial state, the key and the goals, so opening a maze
+ * never scans its cells.
+ * <p>
+ * Tiles are paged in on demand through an LRU cache of bounded size, so the
+ * memory used for the maze itself is fixed however large the maze is. A
+ * TiledMaze is not thread-safe.
+ */
+public final class TiledMaze implements Closeable {
+
+    // Public Static Vars
+    // -----------------------------------------------------------------------------
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    // Private Static Vars
+    // -----------------------------------------------------------------------------
+    private static final int MAGIC = 0x4D5A5449, VERSION = 1, HEADER_SIZE = 32;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    // Private Fields
+    // -----------------------------------------------------------------------------
+    private final FileChannel channel;
+    private final int rows, cols, tileSize, tileCols;
+    private final long[] tileIndex;
+    private final MazeState initial, key;
+    private final List<MazeState> goals;
+    private final LinkedHashMap<Integer, long[]> cache;
+    private final long[][] uniformTiles = new long[16][];
+    private int lastTile = -1;
+    private long[] lastCells;
+
+
+    // Constructors
+    // -----------------------------------------------------------------------------
+
+    private TiledMaze (FileChannel channel, int rows, int cols, int tileSize, long[] tileIndex, MazeState initial,
+            MazeState key, List<MazeState> goals, int maxCachedTiles) {
+        this.channel = channel;
+        this.rows = rows;
+        this.cols = cols;
+        this.tileSize = tileSize;
+        this.tileCols = (cols + tileSize - 1) / tileSize;
+        this.tileIndex = tileIndex;
+        this.initial = initial;
+        this.key = key;
+        this.goals = goals;
+        this.cache = new LinkedHashMap<Integer, long[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Integer, long[]> eldest) {
+                return size() > maxCachedTiles;
+            }
+        };
+    }
+
+    /**
+     * Converts a maze file, one row of maze characters per line as read by
+     * {@link MazeGrid#load(Path)}, into the tiled format, in a single pass that
+     * holds only one row of tiles in memory at a time.
+     *
+     * @param text Path of the maze file to convert.
+     * @param tiled Path to write the tiled maze to, replacing any existing file.
+     * @param tileSize Side length of the tiles, in cells: a multiple of 4.
+     * @throws IllegalArgumentException If tileSize is invalid, the rows of the
+     * maze differ in length, the maze contains an invalid character, or it has no
+     * initial state.
+     */
+    public static void importText (Path text, Path tiled, int tileSize) throws IOException {
+        if (tileSize < 4 || tileSize > 4096 || tileSize % 4 != 0) {
+            throw new IllegalArgumentException("Tile size must be a multiple of 4 in [4, 4096]");
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(text), READ_BUFFER_SIZE);
+                FileChannel out = FileChannel.open(tiled, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = HEADER_SIZE;
+            long[] index = new long[64];
+            int tiles = 0;
+            int cols = -1, col = 0, row = 0, bandRow = 0;
+            byte[] band = new byte[64];
+            int initialCol = -1, initialRow = -1, keyCol = -1, keyRow = -1;
+            ArrayList<int[]> goals = new ArrayList<>();
+            for (int b = in.read(); ; b = in.read()) {
+                if (b == '\r') { continue; }
+                if (b == '\n' || b < 0) {
+                    if (col > 0) {
+                        if (cols < 0) {
+                            cols = col;
+                            band = Arrays.copyOf(band, tileSize * cols);
+                        }
+                        if (col != cols) { throw new IllegalArgumentException("Maze row " + row + " has the wrong length"); }
+                        row++;
+                        col = 0;
+                        if (++bandRow == tileSize) {
+                            int tileCols = (cols + tileSize - 1) / tileSize;
+                            if (tiles + tileCols > index.length) { index = Arrays.copyOf(index, 2 * (tiles + tileCols)); }
+                            position = writeBand(out, position, band, bandRow, cols, tileSize, index, tiles);
+                            tiles += tileCols;
+                            bandRow = 0;
+                        }
+                    }
+                    if (b < 0) { break; }
+                    continue;
+                }
+                int type = MazeGrid.typeOf((char) b);
+                if (cols < 0 && col == band.length) { band = Arrays.copyOf(band, 2 * col); }
+                if (cols >= 0 && col >= cols) { throw new IllegalArgumentException("Maze row " + row + " has the wrong length"); }
+                band[(cols < 0) ? col : bandRow * cols + col] = (byte) type;
+                if (type == MazeGrid.INITIAL) {
+                    initialCol = col;
+                    initialRow = row;
+                } else if (type == MazeGrid.KEY) {
+                    keyCol = col;
+                    keyRow = row;
+                } else if (type == MazeGrid.GOAL) {
+                    goals.add(new int[] { col, row });
+                }
+                col++;
+            }
+            if (initialCol < 0) { throw new IllegalArgumentException("Maze has no initial state"); }
+            if (bandRow > 0) {
+                int tileCols = (cols + tileSize - 1) / tileSize;
+                if (tiles + tileCols > index.length) { index = Arrays.copyOf(index, tiles + tileCols); }
+                position = writeBand(out, position, band, bandRow, cols, tileSize, index, tiles);
+                tiles += tileCols;
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate(8 * tiles + 20 + 8 * goals.size());
+            for (int t = 0; t < tiles; t++) { trailer.putLong(index[t]); }
+            trailer.putInt(initialCol).putInt(initialRow).putInt(keyCol).putInt(keyRow).putInt(goals.size());
+            for (int[] goal : goals) { trailer.putInt(goal[0]).putInt(goal[1]); }
+            writeFully(out, trailer.flip(), position);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(tileSize).putInt(row).putInt(Math.max(cols, 0)).putInt(tiles)
+                    .putLong(position);
+            writeFully(out, header.flip(), 0);
+        }
+    }
+
+    /**
+     * Opens a maze written by {@link #importText(Path, Path, int)}.
+     *
+     * @param tiled Path of the tiled maze.
+     * @param maxCachedTiles Largest number of tiles to hold in memory at once.
+     * @return The opened maze, to be closed after use.
+     * @throws IllegalArgumentException If the file is not a tiled maze.
+     */
+    public static TiledMaze open (Path tiled, int maxCachedTiles) throws IOException {
+        if (maxCachedTiles < 1) {
+            throw new IllegalArgumentException("The tile cache must hold at least one tile");
+        }
+        FileChannel channel = FileChannel.open(tiled, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readFully(channel, HEADER_SIZE, 0);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalArgumentException("Not a tiled maze");
+            }
+            int tileSize = header.getInt(), rows = header.getInt(), cols = header.getInt(), tiles = header.getInt();
+            long indexOffset = header.getLong();
+            ByteBuffer trailer = readFully(channel, (int) (channel.size() - indexOffset), indexOffset);
+            long[] index = new long[tiles];
+            for (int t = 0; t < tiles; t++) { index[t] = trailer.getLong(); }
+            MazeState initial = new MazeState(trailer.getInt(), trailer.getInt());
+            int keyCol = trailer.getInt(), keyRow = trailer.getInt();
+            List<MazeState> goals = new ArrayList<>();
+            for (int g = trailer.getInt(); g > 0; g--) { goals.add(new MazeState(trailer.getInt(), trailer.getInt())); }
+            return new TiledMaze(channel, rows, cols, tileSize, index, initial,
+                    (keyCol < 0) ? null : new MazeState(keyCol, keyRow), Collections.unmodifiableList(goals), maxCachedTiles);
+        } catch (BufferUnderflowException e) {
+            channel.close();
+            throw new IllegalArgumentException("Truncated tiled maze", e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    public int getRows () {
+        return rows;
+    }
+
+    public int getCols () {
+        return cols;
+    }
+
+    public MazeState getInitialState () {
+        return initial.clone();
+    }
+
+    /**
+     * @return The key's location, or null if the maze has no key.
+     */
+    public MazeState getKeyState () {
+        return (key == null) ? null : key.clone();
+    }
+
+    /**
+     * @return The goals' locations, in file order.
+     */
+    public List<MazeState> getGoalStates () {
+        return goals;
+    }
+
+    /**
+     * @return The type (MazeGrid.OPEN, MazeGrid.WALL, ...) of the cell at (col, row),
+     * paging its tile in if needed.
+     */
+    public int get (int col, int row) {
+        int tile = (row / tileSize) * tileCols + col / tileSize;
+        if (tile != lastTile) {
+            lastCells = tile(tile);
+            lastTile = tile;
+        }
+        int local = (row % tileSize) * tileSize + col % tileSize;
+        return (int) (lastCells[local >>> 4] >>> ((local & 15) << 2)) & 15;
+    }
+
+    /**
+     * @return The cost of entering the cell at (col, row): 3 for mud, 0 for walls
+     * and cells outside of the maze, 1 otherwise.
+     */
+    public int getCost (int col, int row) {
+        if (col < 0 || col >= cols || row < 0 || row >= rows) { return 0; }
+        int type = get(col, row);
+        return (type == MazeGrid.WALL) ? 0 : (type == MazeGrid.MUD) ? 3 : 1;
+    }
+
+    /**
+     * @return The number of tiles currently held in memory.
+     */
+    public int getCachedTiles () {
+        return cache.size();
+    }
+
+    @Override
+    public void close () throws IOException {
+        channel.close();
+    }
+
+    private long[] tile (int tile) {
+        long entry = tileIndex[tile];
+        if (entry < 0) {
+            int type = (int) (-1 - entry);
+            if (uniformTiles[type] == null) {
+                uniformTiles[type] = new long[tileSize * tileSize / 16];
+                Arrays.fill(uniformTiles[type], 0x1111111111111111L * type);
+            }
+            return uniformTiles[type];
+        }
+        long[] cells = cache.get(tile);
+        if (cells == null) {
+            try {
+                cells = new long[tileSize * tileSize / 16];
+                readFully(channel, 8 * cells.length, entry).asLongBuffer().get(cells);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            cache.put(tile, cells);
+        }
+        return cells;
+    }
+
+    /**
+     * Writes the tiles of one band of rows, storing their offsets (or, for
+     * uniform tiles, -1 - type) in index from position first on.
+     *
+     * @return The file position after the written tiles.
+     */
+    private static long writeBand (FileChannel out, long position, byte[] band, int bandRows, int cols, int tileSize,
+            long[] index, int first) throws IOException {
+        ByteBuffer tile = ByteBuffer.allocate(tileSize * tileSize / 2);
+        for (int left = 0, t = first; left < cols; left += tileSize, t++) {
+            tile.clear();
+            int firstType = -1;
+            boolean uniform = true;
+            long packed = 0;
+            for (int local = 0; local < tileSize * tileSize; local++) {
+                int row = local / tileSize, col = left + local % tileSize;
+                int type = (row < bandRows && col < cols) ? band[row * cols + col] : MazeGrid.WALL;
+                if (firstType < 0) { firstType = type; }
+                uniform &= type == firstType;
+                packed |= (long) type << ((local & 15) << 2);
+                if ((local & 15) == 15) {
+                    tile.putLong(packed);
+                    packed = 0;
+                }
+            }
+            if (uniform) {
+                index[t] = -1 - firstType;
+                continue;
+            }
+            index[t] = position;
+            position += writeFully(out, tile.flip(), position);
+        }
+        return position;
+    }
+
+    private static int writeFully (FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) { written += channel.write(buffer, position + written); }
+        return written;
+    }
+
+    private static ByteBuffer readFully (FileChannel channel, int size, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalArgumentException("Truncated tiled maze");
+            }
+        }
+        return buffer.flip();
+    }
+
+}
@@ -0,0 +1,188 @@
+package main.pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A* engine for {@link TiledMaze}s, which reads cells through the maze's
+ * bounded tile cache and keeps its search state sparse: only the cells a search
+ * actually reaches get a node, found through a primitive hash map keyed by the
+ * (long) cell index {@code row * cols + col}. Memory therefore grows with the
+ * part of the maze explored, not with its size. Results are the same as those of
+ * {@link GridSearch} on the same maze.
+ */
+public class TiledSearch {
+
+    // Private Fields
+    // -----------------------------------------------------------------------------
+    private final TiledMaze maze;
+    private final int cols;
+    private final LongIntHashMap nodeOf = new LongIntHashMap(1 << 10), targets = new LongIntHashMap(16);
+    private final LongMinHeap open = new LongMinHeap(1 << 10);
+    private long[] nodeCell = new long[1 << 10];
+    private int[] nodeG = new int[1 << 10];
+    private byte[] nodeMove = new byte[1 << 10];
+    private boolean[] nodeClosed = new boolean[1 << 10];
+    private int nodeCount, cost = -1;
+    private int[] targetCols = new int[1], targetRows = new int[1];
+    private int targetCount;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new TiledSearch over the given maze.
+     *
+     * @param maze The TiledMaze to search.
+     */
+    public TiledSearch (TiledMaze maze) {
+        this.maze = maze;
+        this.cols = maze.getCols();
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Solves the maze as {@link GridSearch#solve()} does: an optimal path from the
+     * initial state to the key, followed by an optimal path from the key to the
+     * cheapest goal to reach from it.
+     *
+     * @return An ArrayList of Strings representing actions that lead from the
+     * initial to a goal state via the key, of the format: ["R", "R", "L", ...], or
+     * null if there is no such path.
+     */
+    public ArrayList<String> solve () {
+        cost = -1;
+        MazeState initial = maze.getInitialState(), key = maze.getKeyState();
+        if (key == null) { return null; }
+        ArrayList<String> actions = new ArrayList<>();
+        int keyNode = search(initial, List.of(key));
+        if (keyNode < 0) { return null; }
+        int toKey = nodeG[keyNode];
+        appendPath(keyNode, actions);
+        int goalNode = search(key, maze.getGoalStates());
+        if (goalNode < 0) { return null; }
+        cost = toKey + nodeG[goalNode];
+        appendPath(goalNode, actions);
+        return actions;
+    }
+
+    /**
+     * @return The cost of the solution found by the last call to {@link #solve()},
+     * or -1 if it found none.
+     */
+    public int getCost () {
+        return cost;
+    }
+
+    /**
+     * @return The number of nodes created by the last search, i.e. the number of
+     * cells it reached.
+     */
+    public int getNodeCount () {
+        return nodeCount;
+    }
+
+    /**
+     * Runs A* from the given state to the cheapest of the given targets.
+     *
+     * @return The node of the target reached, or -1 if no target is reachable.
+     */
+    private int search (MazeState from, List<MazeState> goals) {
+        nodeOf.clear();
+        targets.clear();
+        nodeCount = 0;
+        open.clear();
+        if (goals.size() > targetCols.length) {
+            targetCols = new int[goals.size()];
+            targetRows = new int[goals.size()];
+        }
+        targetCount = 0;
+        for (MazeState goal : goals) {
+            targets.put(cell(goal.col, goal.row), 1);
+            targetCols[targetCount] = goal.col;
+            targetRows[targetCount++] = goal.row;
+        }
+        int start = node(cell(from.col, from.row));
+        nodeG[start] = 0;
+        open.push(LongMinHeap.entry(heuristic(from.col, from.row), start));
+
+        while (!open.isEmpty()) {
+            int node = LongMinHeap.cell(open.pop());
+            if (nodeClosed[node]) { continue; }
+            nodeClosed[node] = true;
+            long cell = nodeCell[node];
+            if (targets.get(cell) >= 0) { return node; }
+
+            int col = (int) (cell % cols), row = (int) (cell / cols);
+            for (int move = 0; move < 4; move++) {
+                int nextCol = col + MazeProblem.COL_OFFSETS[move], nextRow = row + MazeProblem.ROW_OFFSETS[move];
+                int stepCost = maze.getCost(nextCol, nextRow);
+                if (stepCost == 0) { continue; }
+                long nextCell = cell(nextCol, nextRow);
+                int next = nodeOf.get(nextCell), g = nodeG[node] + stepCost;
+                if (next >= 0 && (nodeClosed[next] || g >= nodeG[next])) { continue; }
+                if (next < 0) { next = node(nextCell); }
+                nodeG[next] = g;
+                nodeMove[next] = (byte) move;
+                open.push(LongMinHeap.entry(g + heuristic(nextCol, nextRow), next));
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends the actions of the path to the given node found by the last search.
+     */
+    private void appendPath (int node, ArrayList<String> actions) {
+        int first = actions.size();
+        for (long cell = nodeCell[node]; node != 0; node = nodeOf.get(cell)) {
+            int move = nodeMove[node];
+            actions.add(MazeProblem.ACTIONS[move]);
+            cell -= MazeProblem.ROW_OFFSETS[move] * (long) cols + MazeProblem.COL_OFFSETS[move];
+        }
+        for (int i = first, j = actions.size() - 1; i < j; i++, j--) {
+            actions.set(i, actions.set(j, actions.get(i)));
+        }
+    }
+
+    /**
+     * @return A new node for the given cell, registered in nodeOf.
+     */
+    private int node (long cell) {
+        if (nodeCount == nodeCell.length) {
+            int capacity = 2 * nodeCount;
+            nodeCell = Arrays.copyOf(nodeCell, capacity);
+            nodeG = Arrays.copyOf(nodeG, capacity);
+            nodeMove = Arrays.copyOf(nodeMove, capacity);
+            nodeClosed = Arrays.copyOf(nodeClosed, capacity);
+        }
+        int node = nodeCount++;
+        nodeCell[node] = cell;
+        nodeClosed[node] = false;
+        nodeOf.put(cell, node);
+        return node;
+    }
+
+    private long cell (int col, int row) {
+        return (long) row * cols + col;
+    }
+
+    /**
+     * @return The Manhattan distance to the nearest target, or 0 when there are
+     * more than {@link GridSearch#MAX_HEURISTIC_TARGETS} targets.
+     */
+    private int heuristic (int col, int row) {
+        if (targetCount > GridSearch.MAX_HEURISTIC_TARGETS) { return 0; }
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < targetCount; i++) {
+            best = Math.min(best, Math.abs(col - targetCols[i]) + Math.abs(row - targetRows[i]));
+        }
+        return best;
+    }
+
+}
@@ -67,9 +67,12 @@ public class DistlePlayer {
 		Iterator<String> itr = this.dictionary.iterator();
 		while (itr.hasNext()) {
 			String word = itr.next();
-			if (!getTransformationList(guess, word).equals(transforms)) {
+			// Words at another distance can not share the transforms, and are ruled
+			// out without building their edit distance table
+			if (editDistanceAtMost(guess, word, editDistance) != editDistance
+					|| !getTransformationList(guess, word).equals(transforms)) {
 				itr.remove();
 			}
 		}
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -171,7 +171,183 @@ public class EditDistanceUtils {
 		if (s0.equals(s1)) {
 			return 0;
 		}
-		return getEditDistTable(s0, s1)[s0.length()][s1.length()];
+		// The distance is symmetric, so the shorter string is the one encoded in
+		// bit vectors, and the longer one is scanned.
+		return (s0.length() <= s1.length()) ? bitParallelDistance(s0, s1) : bitParallelDistance(s1, s0);
+	}
+
+	/**
+	 * Returns the edit distance between the two given strings, as
+	 * {@link #editDistance(String, String)} does, if it is at most k, and k + 1
+	 * otherwise. Only the band of the table within k of its diagonal is computed,
+	 * since any cell farther off it is more than k away from both corners, and
+	 * the computation stops as soon as no cell of the band can lead to a distance
+	 * of at most k; strings differing in length by more than k are rejected
+	 * outright. Runs in O(k * min(n, m)) for strings of lengths n and m.
+	 * 
+	 * @param s0 String to transform into other
+	 * @param s1 Target of transformation
+	 * @param k  The largest distance of interest, at least 0
+	 * @return The minimal number of manipulations required to turn s0 into s1 if
+	 *         at most k, k + 1 otherwise
+	 */
+	public static int editDistanceAtMost(String s0, String s1, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Distance threshold must be at least 0");
+		}
+		// The distance is symmetric, so rows run along the shorter string
+		if (s0.length() > s1.length()) {
+			String swap = s0;
+			s0 = s1;
+			s1 = swap;
+		}
+		int len1 = s0.length();
+		int len2 = s1.length();
+		if (len2 - len1 > k) {
+			return k + 1;
+		}
+		if (s0.equals(s1)) {
+			return 0;
+		}
+		k = Math.min(k, len2);
+
+		// Band rows: cell (i, j) of the table is at index j - i + k of row i, and
+		// every value above k is capped at k + 1
+		int width = 2 * k + 1;
+		int cap = k + 1;
+		int[] twoBack = new int[width], previous = new int[width], current = new int[width];
+		Arrays.fill(twoBack, cap);
+		for (int d = 0; d < width; d++) {
+			int j = d - k;
+			previous[d] = (j >= 0 && j <= len2) ? j : cap;
+		}
+		int previousMin = 0;
+
+		for (int i = 1; i <= len1; i++) {
+			int rowMin = cap;
+			for (int d = 0; d < width; d++) {
+				int j = i + d - k;
+				int value;
+				if (j < 0 || j > len2) {
+					value = cap;
+				} else if (j == 0) {
+					value = Math.min(i, cap);
+				} else if (s0.charAt(i - 1) == s1.charAt(j - 1)) {
+					value = previous[d];
+				} else {
+					value = previous[d] + 1;
+					if (d > 0) {
+						value = Math.min(value, current[d - 1] + 1);
+					}
+					if (d < width - 1) {
+						value = Math.min(value, previous[d + 1] + 1);
+					}
+					if ((i >= 2 && j >= 2) && (s1.charAt(j - 1) == s0.charAt(i - 2))
+							&& (s0.charAt(i - 1) == s1.charAt(j - 2))) {
+						value = Math.min(value, twoBack[d] + 1);
+					}
+					value = Math.min(value, cap);
+				}
+				current[d] = value;
+				rowMin = Math.min(rowMin, value);
+			}
+			// Every path to the last row passes through this row, or skips it with a
+			// transposition (costing 1) from the previous row
+			if (rowMin > k && previousMin >= k) {
+				return cap;
+			}
+			previousMin = rowMin;
+			int[] recycled = twoBack;
+			twoBack = previous;
+			previous = current;
+			current = recycled;
+		}
+		return previous[len2 - len1 + k];
+	}
+
+	/**
+	 * Computes the same edit distance as {@link #getEditDistTable(String, String)},
+	 * including adjacent transpositions, with Hyyro's bit-parallel extension of
+	 * Myers' algorithm: every column of the table (one per character of text) is
+	 * kept as the bit vectors of its vertical differences, VP (+1) and VN (-1),
+	 * one bit per character of pattern, and advanced with a handful of word
+	 * operations per 64 characters of pattern. Patterns longer than 64 characters
+	 * span several words, with the carries of the additions and shifts passed on
+	 * from word to word, so the words together behave as one long bit vector.
+	 * Runs in O(n * ceil(m / 64)) for text length n and pattern length m, and
+	 * allocates only a few arrays of ceil(m / 64) words and the pattern's alphabet.
+	 * 
+	 * @param pattern The string encoded in bit vectors, best the shorter one
+	 * @param text    The string scanned character by character
+	 * @return The edit distance between pattern and text
+	 */
+	private static int bitParallelDistance(String pattern, String text) {
+		int m = pattern.length();
+		if (m == 0) {
+			return text.length();
+		}
+		int words = (m + 63) >>> 6;
+		long lastBit = 1L << ((m - 1) & 63);
+
+		// Match masks: bit i of word b of the masks of the k-th character of
+		// alphabet (the pattern's distinct characters, sorted) is set iff
+		// pattern.charAt(64 * b + i) is that character
+		char[] alphabet = pattern.toCharArray();
+		Arrays.sort(alphabet);
+		int distinct = 0;
+		for (int i = 0; i < m; i++) {
+			if (i == 0 || alphabet[i] != alphabet[i - 1]) {
+				alphabet[distinct++] = alphabet[i];
+			}
+		}
+		alphabet = Arrays.copyOf(alphabet, distinct);
+		long[] masks = new long[distinct * words];
+		for (int i = 0; i < m; i++) {
+			masks[Arrays.binarySearch(alphabet, pattern.charAt(i)) * words + (i >>> 6)] |= 1L << (i & 63);
+		}
+
+		long[] vp = new long[words], vn = new long[words], d0 = new long[words];
+		Arrays.fill(vp, -1L);
+		int score = m, previous = -1;
+		for (int j = 0; j < text.length(); j++) {
+			int current = Arrays.binarySearch(alphabet, text.charAt(j));
+			// Carries into the next word: of the addition, of the shifted horizontal
+			// differences (the first row of the table grows by 1 per column), and of
+			// the shifted transposition candidates
+			long addCarry = 0, hpCarry = 1, hnCarry = 0, trCarry = 0;
+			for (int b = 0; b < words; b++) {
+				long pm = (current < 0) ? 0 : masks[current * words + b];
+				long pmPrevious = (previous < 0) ? 0 : masks[previous * words + b];
+
+				// Transpositions: pattern[i - 1] == text[j] and pattern[i] == text[j - 1],
+				// where the previous column did not already match diagonally at i - 1
+				long candidates = ~d0[b] & pm;
+				long tr = ((candidates << 1) | trCarry) & pmPrevious;
+				trCarry = candidates >>> 63;
+
+				long x = pm & vp[b], sum = x + vp[b] + addCarry;
+				addCarry = (Long.compareUnsigned(sum, x) < 0 || (addCarry != 0 && sum == x)) ? 1 : 0;
+				long d = (sum ^ vp[b]) | pm | vn[b] | tr;
+
+				long hp = vn[b] | ~(d | vp[b]);
+				long hn = vp[b] & d;
+				if (b == words - 1) {
+					if ((hp & lastBit) != 0) {
+						score++;
+					} else if ((hn & lastBit) != 0) {
+						score--;
+					}
+				}
+				long hpShifted = (hp << 1) | hpCarry, hnShifted = (hn << 1) | hnCarry;
+				hpCarry = hp >>> 63;
+				hnCarry = hn >>> 63;
+				vp[b] = hnShifted | ~(d | hpShifted);
+				vn[b] = d & hpShifted;
+				d0[b] = d;
+			}
+			previous = current;
+		}
+		return score;
 	}
 
 	/**
@@ -0,0 +1,60 @@
+package main.compression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Reader that decodes the output of an {@link AdaptiveHuffmanWriter} as it
+ * arrives, rebuilding the same adaptive Huffman Trie in lockstep with the
+ * writer. A stream that ends before the writer's end-of-message code makes
+ * reads fail with an EOFException.
+ */
+public class AdaptiveHuffmanReader extends Reader {
+
+	private static final char ETB_CHAR = 23;
+
+	private final AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+	private final InputStream in;
+	private final BitInput bits;
+	private boolean ended, closed;
+
+	/**
+	 * Constructs a new AdaptiveHuffmanReader.
+	 * 
+	 * @param in InputStream supplying the compressed bytes.
+	 */
+	public AdaptiveHuffmanReader(InputStream in) {
+		this.in = in;
+		this.bits = new BitInput(in);
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		int count = 0;
+		while (count < len && !ended) {
+			// The stream ends with ETB_CHAR followed by at most a byte of padding, so
+			// running out of bits before it means the stream was cut short
+			if (bits.isExhausted()) {
+				throw new EOFException("Truncated stream");
+			}
+			char c = tree.decode(bits);
+			if (c == ETB_CHAR) {
+				ended = true;
+			} else {
+				cbuf[off + count++] = c;
+			}
+		}
+		return (count == 0 && len > 0) ? -1 : count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		in.close();
+	}
+}
@@ -0,0 +1,159 @@
+package main.compression;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Adaptive Huffman Trie maintained with the FGK algorithm, shared in lockstep by
+ * an {@link AdaptiveHuffmanWriter} and the {@link AdaptiveHuffmanReader} that
+ * decodes its output. The trie starts as a single NYT ("not yet transmitted")
+ * leaf; the first occurrence of a character is sent as the NYT code followed by
+ * the raw 16-bit char, after which the NYT leaf is split to make room for it.
+ * After every character the trie is updated to remain a Huffman Trie for the
+ * counts seen so far, so no frequencies need to be known in advance.
+ * <p>
+ * Nodes are stored in parallel int arrays. Each node also has a rank, its
+ * position in the sibling-property ordering (rank 0 is the root; weights never
+ * increase with rank), which makes finding the leader of a weight class a short
+ * scan.
+ */
+class AdaptiveHuffmanTree {
+
+	private static final int NONE = -1, ROOT = 0, RAW_BITS = 16;
+
+	private int[] weight, parent, zero, one, symbol, rank, byRank;
+	private final int[] leafOf = new int[Character.MAX_VALUE + 1];
+	private int size, nyt;
+	private int[] path = new int[64];
+
+	AdaptiveHuffmanTree() {
+		int capacity = 64;
+		weight = new int[capacity];
+		parent = new int[capacity];
+		zero = new int[capacity];
+		one = new int[capacity];
+		symbol = new int[capacity];
+		rank = new int[capacity];
+		byRank = new int[capacity];
+		Arrays.fill(leafOf, NONE);
+		nyt = newNode(NONE);
+	}
+
+	/**
+	 * Writes the current code of the given character (or the NYT code and the raw
+	 * character, if it is new) and updates the trie.
+	 */
+	void encode(char character, BitOutput out) throws IOException {
+		int leaf = leafOf[character];
+		writePath(leaf == NONE ? nyt : leaf, out);
+		if (leaf == NONE) {
+			out.write(character, RAW_BITS);
+		}
+		update(character);
+	}
+
+	/**
+	 * Reads the next character, as written by {@link #encode(char, BitOutput)},
+	 * and updates the trie.
+	 */
+	char decode(BitInput in) throws IOException {
+		int node = ROOT;
+		while (zero[node] != NONE) {
+			node = in.readBit() == 0 ? zero[node] : one[node];
+		}
+		char character = (node == nyt) ? (char) in.read(RAW_BITS) : (char) symbol[node];
+		update(character);
+		return character;
+	}
+
+	private void writePath(int node, BitOutput out) throws IOException {
+		int depth = 0;
+		for (; node != ROOT; node = parent[node]) {
+			if (depth == path.length) {
+				path = Arrays.copyOf(path, 2 * depth);
+			}
+			path[depth++] = (zero[parent[node]] == node) ? 0 : 1;
+		}
+		while (depth > 0) {
+			int length = Math.min(depth, 56);
+			long code = 0;
+			for (int i = 0; i < length; i++) {
+				code = (code << 1) | path[--depth];
+			}
+			out.write(code, length);
+		}
+	}
+
+	/**
+	 * Increments the count of the given character, splitting the NYT leaf first if
+	 * it is new, and restores the sibling property on the way up to the root by
+	 * swapping each node with the leader of its weight class before incrementing.
+	 */
+	private void update(char character) {
+		int node = leafOf[character];
+		if (node == NONE) {
+			int oldNyt = nyt;
+			node = newNode(character);
+			nyt = newNode(NONE);
+			zero[oldNyt] = nyt;
+			one[oldNyt] = node;
+			parent[nyt] = oldNyt;
+			parent[node] = oldNyt;
+			leafOf[character] = node;
+		}
+		while (node != NONE) {
+			int leader = node;
+			for (int r = rank[node] - 1; r >= 0 && weight[byRank[r]] == weight[node]; r--) {
+				leader = byRank[r];
+			}
+			if (leader != node && leader != parent[node]) {
+				swap(node, leader);
+			}
+			weight[node]++;
+			node = parent[node];
+		}
+	}
+
+	private void swap(int a, int b) {
+		int parentA = parent[a], parentB = parent[b];
+		boolean aIsZero = zero[parentA] == a, bIsZero = zero[parentB] == b;
+		if (aIsZero) {
+			zero[parentA] = b;
+		} else {
+			one[parentA] = b;
+		}
+		if (bIsZero) {
+			zero[parentB] = a;
+		} else {
+			one[parentB] = a;
+		}
+		parent[a] = parentB;
+		parent[b] = parentA;
+		int rankA = rank[a];
+		rank[a] = rank[b];
+		rank[b] = rankA;
+		byRank[rank[a]] = a;
+		byRank[rank[b]] = b;
+	}
+
+	private int newNode(int character) {
+		if (size == weight.length) {
+			int capacity = 2 * size;
+			weight = Arrays.copyOf(weight, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			zero = Arrays.copyOf(zero, capacity);
+			one = Arrays.copyOf(one, capacity);
+			symbol = Arrays.copyOf(symbol, capacity);
+			rank = Arrays.copyOf(rank, capacity);
+			byRank = Arrays.copyOf(byRank, capacity);
+		}
+		int node = size++;
+		parent[node] = NONE;
+		zero[node] = NONE;
+		one[node] = NONE;
+		symbol[node] = character;
+		rank[node] = node;
+		byRank[node] = node;
+		return node;
+	}
+}
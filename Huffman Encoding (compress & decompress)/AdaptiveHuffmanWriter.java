@@ -0,0 +1,79 @@
+package main.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Writer that compresses the characters written to it in a single pass with
+ * adaptive (FGK) Huffman coding: the codes are learned from the characters
+ * themselves as they arrive, so no corpus is needed up front and output can be
+ * produced immediately. Every call to {@link #flush()} pushes all complete
+ * compressed bytes to the wrapped stream, so at most 7 bits of the characters
+ * written so far are held back. Closing the writer appends the end-of-message
+ * (ETB) character and the final 0-padding.
+ */
+public class AdaptiveHuffmanWriter extends Writer {
+
+	private static final char ETB_CHAR = 23;
+
+	private final AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+	private final OutputStream out;
+	private final BitOutput bits;
+	private boolean closed;
+
+	/**
+	 * Constructs a new AdaptiveHuffmanWriter.
+	 * 
+	 * @param out OutputStream receiving the compressed bytes.
+	 */
+	public AdaptiveHuffmanWriter(OutputStream out) {
+		this.out = out;
+		this.bits = new BitOutput(out);
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		ensureOpen();
+		tree.encode((char) c, bits);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		for (int i = off; i < off + len; i++) {
+			tree.encode(cbuf[i], bits);
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		ensureOpen();
+		for (int i = off; i < off + len; i++) {
+			tree.encode(str.charAt(i), bits);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		bits.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		tree.encode(ETB_CHAR, bits);
+		bits.finish();
+		closed = true;
+		out.close();
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+}
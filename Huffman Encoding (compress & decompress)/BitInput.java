@@ -0,0 +1,130 @@
+package main.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Bit-reading source used by the Huffman decoders. Bytes are taken from a
+ * ByteBuffer, either a small internal buffer refilled from the wrapped
+ * InputStream in bulk or a caller's source buffer read in place, and kept in a
+ * 64-bit accumulator so that decoders can peek several bits at once. Reads past
+ * the end of the input yield 0-bits.
+ */
+class BitInput {
+
+	private static final int BUFFER_SIZE = 1 << 13;
+
+	private final InputStream in;
+	private final ByteBuffer buffer;
+	private boolean endOfStream;
+	private long accumulator;
+	private int bitCount;
+
+	BitInput(InputStream in) {
+		this.in = in;
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.buffer.limit(0);
+	}
+
+	/**
+	 * Constructs a BitInput reading directly from the remaining bytes of the given
+	 * buffer. Bytes pulled into the accumulator advance its position, which may
+	 * therefore run up to 8 bytes ahead of the bits actually decoded.
+	 */
+	BitInput(ByteBuffer source) {
+		this.in = null;
+		this.buffer = source;
+		this.endOfStream = true;
+	}
+
+	/**
+	 * Returns the next {@code length} bits without consuming them, 0-padded if the
+	 * stream ends first.
+	 *
+	 * @param length Number of bits to peek, in [1, 32].
+	 * @return The bits, right-aligned.
+	 */
+	int peek(int length) throws IOException {
+		if (bitCount < length) {
+			refill();
+			if (bitCount <= 0) {
+				return 0;
+			}
+			if (bitCount < length) {
+				return (int) ((accumulator << (length - bitCount)) & ((1L << length) - 1));
+			}
+		}
+		return (int) ((accumulator >>> (bitCount - length)) & ((1L << length) - 1));
+	}
+
+	/**
+	 * Consumes the given number of bits, which must not exceed those last peeked.
+	 */
+	void skip(int length) {
+		bitCount -= length;
+	}
+
+	/**
+	 * @return The next bit of the stream (0 past its end).
+	 */
+	int readBit() throws IOException {
+		int bit = peek(1);
+		bitCount--;
+		return bit;
+	}
+
+	/**
+	 * @return The next {@code length} bits as an int, consuming them.
+	 */
+	int read(int length) throws IOException {
+		int bits = peek(length);
+		bitCount -= length;
+		return bits;
+	}
+
+	/**
+	 * @return Whether every bit of the underlying stream has been consumed; bits
+	 *         read beyond this point are padding.
+	 */
+	boolean isExhausted() throws IOException {
+		if (bitCount <= 0) {
+			refill();
+		}
+		return bitCount <= 0;
+	}
+
+	/**
+	 * Moves the position of a source buffer back over the whole bytes that were
+	 * pulled into the accumulator but not consumed, leaving it just after the last
+	 * byte decoded from.
+	 */
+	void release() {
+		if (in == null && bitCount >= 8) {
+			buffer.position(buffer.position() - bitCount / 8);
+			bitCount %= 8;
+		}
+	}
+
+	private void refill() throws IOException {
+		if (bitCount < 0) {
+			return;
+		}
+		while (bitCount <= 56) {
+			if (!buffer.hasRemaining()) {
+				if (endOfStream) {
+					return;
+				}
+				int count = in.read(buffer.array(), 0, BUFFER_SIZE);
+				if (count <= 0) {
+					buffer.limit(0);
+					endOfStream = true;
+					return;
+				}
+				buffer.position(0).limit(count);
+			}
+			accumulator = (accumulator << 8) | (buffer.get() & 0xff);
+			bitCount += 8;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package main.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Bit-packing sink used by the Huffman encoders. Codes are shifted into a 64-bit
+ * accumulator and drained a byte at a time into a ByteBuffer: either a small
+ * internal buffer written to the wrapped OutputStream in bulk, or a caller's
+ * target buffer written in place. Nothing is allocated per symbol.
+ */
+class BitOutput {
+
+	private static final int BUFFER_SIZE = 1 << 13;
+
+	private final OutputStream out;
+	private final ByteBuffer buffer;
+	private long accumulator;
+	private int bitCount;
+	private long bitsWritten;
+
+	BitOutput(OutputStream out) {
+		this.out = out;
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructs a BitOutput writing directly into the given buffer, starting at
+	 * its position.
+	 *
+	 * @throws java.nio.BufferOverflowException From {@link #write(long, int)} if
+	 *                                          the target fills up.
+	 */
+	BitOutput(ByteBuffer target) {
+		this.out = null;
+		this.buffer = target;
+	}
+
+	/**
+	 * Appends the lowest {@code length} bits of {@code code}, most significant bit
+	 * first.
+	 *
+	 * @param code   Bits to write, right-aligned.
+	 * @param length Number of bits of code to write, in [0, 64].
+	 */
+	void write(long code, int length) throws IOException {
+		if (length > 56) {
+			write(code >>> 32, length - 32);
+			write(code, 32);
+			return;
+		}
+		if (length < 64) {
+			code &= (1L << length) - 1;
+		}
+		accumulator = (accumulator << length) | code;
+		bitCount += length;
+		bitsWritten += length;
+		while (bitCount >= 8) {
+			bitCount -= 8;
+			if (out != null && !buffer.hasRemaining()) {
+				drain();
+			}
+			buffer.put((byte) (accumulator >>> bitCount));
+		}
+	}
+
+	/**
+	 * @return Total number of bits written so far, excluding any padding.
+	 */
+	long bitsWritten() {
+		return bitsWritten;
+	}
+
+	/**
+	 * Writes every complete byte to the wrapped stream and flushes it, leaving any
+	 * partial final byte pending in the accumulator.
+	 */
+	void flush() throws IOException {
+		if (out != null) {
+			drain();
+			out.flush();
+		}
+	}
+
+	/**
+	 * 0-pads the pending bits (if any) up to the next byte boundary and flushes
+	 * everything to the wrapped stream.
+	 */
+	void finish() throws IOException {
+		if (bitCount > 0) {
+			int padding = 8 - bitCount;
+			write(0, padding);
+			bitsWritten -= padding;
+		}
+		flush();
+	}
+
+	private void drain() throws IOException {
+		if (buffer.position() > 0) {
+			out.write(buffer.array(), 0, buffer.position());
+			buffer.clear();
+		}
+	}
+}
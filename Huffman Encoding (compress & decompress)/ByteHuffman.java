@@ -0,0 +1,190 @@
+package main.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Byte-symbol variant of {@link Huffman}: codes are built over the 256 byte
+ * values plus an end-of-message symbol, so arbitrary binary data (or UTF-8 text
+ * without decoding it to chars) can be compressed. Codes are always canonical,
+ * and the encoding and decoding loops work on {@code byte[]} / ByteBuffer
+ * through primitive tables without allocating per symbol.
+ */
+public class ByteHuffman {
+
+	private static final int END_SYMBOL = 256;
+
+	private final HuffmanCodebook codebook;
+
+	/**
+	 * Constructs a new ByteHuffman instance from the byte frequencies of the given
+	 * corpus.
+	 *
+	 * @param corpus Data whose byte distribution the codes are built for.
+	 */
+	public ByteHuffman(byte[] corpus) {
+		int[] frequencies = new int[END_SYMBOL + 1];
+		for (byte b : corpus) {
+			frequencies[b & 0xff]++;
+		}
+		frequencies[END_SYMBOL] = 1;
+		int[] lengths = HuffmanCodebook.codeLengths(frequencies);
+		int size = 0;
+		int[] symbols = new int[frequencies.length], symbolLengths = new int[frequencies.length];
+		for (int symbol = 0; symbol < frequencies.length; symbol++) {
+			if (frequencies[symbol] > 0) {
+				symbols[size] = symbol;
+				symbolLengths[size++] = lengths[symbol];
+			}
+		}
+		codebook = HuffmanCodebook.canonical(Arrays.copyOf(symbols, size), Arrays.copyOf(symbolLengths, size),
+				HuffmanCodebook.DEFAULT_LOOKUP_BITS);
+	}
+
+	private ByteHuffman(HuffmanCodebook codebook) {
+		this.codebook = codebook;
+	}
+
+	/**
+	 * Reconstructs a ByteHuffman instance from a header produced by
+	 * {@link #getHeader()}.
+	 *
+	 * @param header The serialized code lengths.
+	 * @return A ByteHuffman instance that compresses and decompresses exactly as
+	 *         the one that produced the header.
+	 * @throws IllegalArgumentException If the header is malformed.
+	 */
+	public static ByteHuffman fromHeader(byte[] header) {
+		try {
+			HuffmanCodebook codebook = HuffmanCodebook.readCanonical(new ByteArrayInputStream(header));
+			if (!codebook.contains(END_SYMBOL)) {
+				throw new IllegalArgumentException("Huffman header has no end-of-message code");
+			}
+			return new ByteHuffman(codebook);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return The compact serialized code lengths of this instance, see
+	 *         {@link Huffman#getHeader()}.
+	 */
+	public byte[] getHeader() {
+		return codebook.writeLengths();
+	}
+
+	/**
+	 * Returns the exact number of bytes that compressing the remaining bytes of
+	 * message will produce, without consuming them.
+	 *
+	 * @param message Buffer whose remaining bytes are to be compressed.
+	 * @return The compressed size in bytes, including the end-of-message code and
+	 *         padding.
+	 * @throws IllegalArgumentException If a byte is not in the alphabet.
+	 */
+	public int compressedSize(ByteBuffer message) {
+		long bits = codebook.length(END_SYMBOL);
+		for (int i = message.position(); i < message.limit(); i++) {
+			int symbol = message.get(i) & 0xff;
+			if (!codebook.contains(symbol)) {
+				throw new IllegalArgumentException("Symbol " + symbol + " is not in the Huffman alphabet");
+			}
+			bits += codebook.length(symbol);
+		}
+		return (int) ((bits + 7) >>> 3);
+	}
+
+	/**
+	 * Compresses the given bytes into their Huffman coded bitstring. Formatted as:
+	 * (1) the bitstring containing the message itself, (2) the end-of-message
+	 * code, (3) possible 0-padding on the final byte.
+	 *
+	 * @param message Bytes to compress.
+	 * @return The compressed bytes, in an array of exactly the compressed size.
+	 */
+	public byte[] compress(byte[] message) {
+		ByteBuffer source = ByteBuffer.wrap(message);
+		byte[] compressed = new byte[compressedSize(source)];
+		compress(source, ByteBuffer.wrap(compressed));
+		return compressed;
+	}
+
+	/**
+	 * Compresses the remaining bytes of source into target, advancing both
+	 * buffers' positions. Target must have at least
+	 * {@link #compressedSize(ByteBuffer)} bytes remaining.
+	 *
+	 * @param source Buffer whose remaining bytes are to be compressed.
+	 * @param target Buffer receiving the compressed bytes.
+	 * @throws java.nio.BufferOverflowException If target is too small.
+	 */
+	public void compress(ByteBuffer source, ByteBuffer target) {
+		try {
+			BitOutput bits = new BitOutput(target);
+			while (source.hasRemaining()) {
+				codebook.encode(source.get() & 0xff, bits);
+			}
+			codebook.encode(END_SYMBOL, bits);
+			bits.finish();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Decompresses the given compressed bytes into their original representation.
+	 *
+	 * @param compressed Bytes produced by {@link #compress(byte[])}.
+	 * @return The decompressed bytes.
+	 */
+	public byte[] decompress(byte[] compressed) {
+		try {
+			BitInput bits = new BitInput(ByteBuffer.wrap(compressed));
+			byte[] message = new byte[Math.max(16, compressed.length * 2)];
+			int size = 0, symbol;
+			while ((symbol = decode(bits)) >= 0) {
+				if (size == message.length) {
+					message = Arrays.copyOf(message, 2 * size);
+				}
+				message[size++] = (byte) symbol;
+			}
+			return Arrays.copyOf(message, size);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Decompresses a message from the remaining bytes of source into target. On
+	 * return, source is positioned just after the last byte of the compressed
+	 * message and target just after the decompressed bytes.
+	 *
+	 * @param source Buffer positioned at a compressed message.
+	 * @param target Buffer receiving the decompressed bytes.
+	 * @throws java.nio.BufferOverflowException If target is too small.
+	 */
+	public void decompress(ByteBuffer source, ByteBuffer target) {
+		try {
+			BitInput bits = new BitInput(source);
+			int symbol;
+			while ((symbol = decode(bits)) >= 0) {
+				target.put((byte) symbol);
+			}
+			bits.release();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private int decode(BitInput bits) throws IOException {
+		if (bits.isExhausted() && codebook.maxLength() > 0) {
+			return -1;
+		}
+		int symbol = codebook.decode(bits);
+		return symbol == END_SYMBOL ? -1 : symbol;
+	}
+}
@@ -1,54 +1,221 @@
 package main.compression;
 
 import java.util.*;
-import java.io.ByteArrayOutputStream; // Optional
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Huffman instances provide reusable Huffman Encoding Maps for compressing and
- * decompressing text corpi with comparable distributions of characters.
+ * decompressing text corpi with comparable distributions of characters. An
+ * instance is never modified after construction, so it can be shared freely
+ * between threads (see {@link HuffmanRegistry}).
  */
 public class Huffman {
 
-	private Map<Character, Integer> charFrequencies;
-	private HuffNode trieRoot;
-	private TreeMap<Character, String> encodingMap;
+	private final boolean canonical;
+	private final int maxCodeLength;
+	private final double averageCodeLength, unlimitedAverageCodeLength;
+	private final HuffmanCodebook codebook;
 	private static final char ETB_CHAR = 23;
+	private static final int PARALLEL_THRESHOLD = 1 << 20;
+	private static final int FILE_CHUNK_SIZE = 1 << 13;
+	private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+	private static final int MAX_CODE_LENGTH = HuffmanCodebook.MAX_SINGLE_LEVEL_BITS;
 
+	/**
+	 * Constructs a new Huffman instance whose codes are read off the Huffman Trie
+	 * built from the character frequencies of the given corpus.
+	 * 
+	 * @param corpus Text whose character distribution the codes are built for.
+	 */
 	public Huffman(String corpus) {
-		charFrequencies = new HashMap<Character, Integer>();
-		encodingMap = new TreeMap<Character, String>();
+		this(corpus, false);
+	}
+
+	/**
+	 * Constructs a new Huffman instance from the character frequencies of the
+	 * given corpus, optionally in canonical mode: the code lengths are taken from
+	 * the Huffman Trie, but the codes themselves are reassigned canonically so that
+	 * the lengths alone (see {@link #getHeader()}) suffice to decode.
+	 * 
+	 * @param corpus    Text whose character distribution the codes are built for.
+	 * @param canonical Whether to assign canonical codes.
+	 */
+	public Huffman(String corpus, boolean canonical) {
+		this(corpus, canonical, 0);
+	}
+
+	/**
+	 * Constructs a new canonical Huffman instance from the character frequencies
+	 * of the given corpus whose codes are at most maxCodeLength bits long. If the
+	 * Huffman Trie has longer codes, optimal length-limited code lengths are
+	 * computed with the package-merge algorithm instead; the resulting loss in
+	 * compression is reported by {@link #getLengthLimitCost()}. Every code then
+	 * fits the decoding lookup table, so each character is decoded with exactly one
+	 * table lookup.
+	 * 
+	 * @param corpus        Text whose character distribution the codes are built
+	 *                      for.
+	 * @param maxCodeLength Maximum code length in bits, in [1, 16].
+	 * @throws IllegalArgumentException If maxCodeLength is out of range or too
+	 *                                  short to give every character a code.
+	 */
+	public Huffman(String corpus, int maxCodeLength) {
+		this(corpus, true, checkMaxCodeLength(maxCodeLength));
+	}
+
+	private Huffman(String corpus, boolean canonical, int maxCodeLength) {
+		this.canonical = canonical;
+		this.maxCodeLength = maxCodeLength;
+		HuffNode trieRoot;
 		if (corpus.isEmpty()) {
 			trieRoot = new HuffNode(ETB_CHAR, 1);
-			encode(trieRoot, "");
-			return;
+		} else {
+			trieRoot = huffmanTrie(charFrequencies(corpus));
 		}
-		fillFrequencies(corpus);
-		huffmanTrie();
-		encode(trieRoot, "");
+
+		// The frequencies and trie are only needed to read off the codes; the
+		// instance keeps just the flat tables of the codebook built from them
+		List<HuffNode> leaves = new ArrayList<>();
+		assignCodes(trieRoot, 0, 0, leaves);
+		int[] symbols = new int[leaves.size()], lengths = new int[leaves.size()], weights = new int[leaves.size()];
+		long[] symbolCodes = new long[leaves.size()];
+		int longest = 0;
+		for (int i = 0; i < symbols.length; i++) {
+			symbols[i] = leaves.get(i).character;
+			symbolCodes[i] = leaves.get(i).code;
+			lengths[i] = leaves.get(i).depth;
+			weights[i] = leaves.get(i).count;
+			longest = Math.max(longest, lengths[i]);
+		}
+		unlimitedAverageCodeLength = averageCodeLength(weights, lengths);
+		if (maxCodeLength > 0 && longest > maxCodeLength) {
+			lengths = HuffmanCodebook.limitedCodeLengths(weights, maxCodeLength);
+		}
+		averageCodeLength = averageCodeLength(weights, lengths);
+		if (maxCodeLength > 0) {
+			codebook = HuffmanCodebook.canonical(symbols, lengths, maxCodeLength);
+		} else if (canonical) {
+			codebook = HuffmanCodebook.canonical(symbols, lengths, HuffmanCodebook.DEFAULT_LOOKUP_BITS);
+		} else {
+			codebook = new HuffmanCodebook(symbols, symbolCodes, lengths, HuffmanCodebook.DEFAULT_LOOKUP_BITS);
+		}
+	}
+
+	/**
+	 * @return The given maximum code length, checked before any work is done.
+	 * @throws IllegalArgumentException If maxCodeLength is out of [1, 16].
+	 */
+	private static int checkMaxCodeLength(int maxCodeLength) {
+		if (maxCodeLength < 1 || maxCodeLength > MAX_CODE_LENGTH) {
+			throw new IllegalArgumentException("Maximum code length must be in [1, " + MAX_CODE_LENGTH + "]");
+		}
+		return maxCodeLength;
 	}
 
-	private void fillFrequencies(String corpus) {
-		int character = 0;
-		int i = 0;
+	private Huffman(HuffmanCodebook codebook) {
+		this.canonical = true;
+		this.maxCodeLength = 0;
+		this.codebook = codebook;
+		this.averageCodeLength = 0;
+		this.unlimitedAverageCodeLength = 0;
+	}
 
-		for (i = 0; i < corpus.length(); i++) {
-			int counter = 0;
-			for (character = 0; character < corpus.length(); character++) {
-				if (corpus.charAt(i) == corpus.charAt(character)) {
-					counter++;
-				}
+	/**
+	 * Reconstructs a canonical Huffman instance from a header produced by
+	 * {@link #getHeader()}, without needing the original corpus.
+	 * 
+	 * @param header The serialized code lengths.
+	 * @return A Huffman instance that decompresses (and compresses) exactly as the
+	 *         one that produced the header.
+	 * @throws IllegalArgumentException If the header is malformed.
+	 */
+	public static Huffman fromHeader(byte[] header) {
+		try {
+			return readHeader(new ByteArrayInputStream(header));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads a header produced by {@link #getHeader()} from the given stream,
+	 * consuming exactly its bytes, and reconstructs the canonical Huffman instance
+	 * it describes. Useful when the header is shipped in front of the compressed
+	 * message.
+	 * 
+	 * @param in Stream positioned at the start of the header.
+	 * @return A Huffman instance that decompresses exactly as the one that produced
+	 *         the header.
+	 * @throws IllegalArgumentException If the header is malformed.
+	 */
+	public static Huffman readHeader(InputStream in) throws IOException {
+		HuffmanCodebook codebook = HuffmanCodebook.readCanonical(in);
+		if (!codebook.contains(ETB_CHAR)) {
+			throw new IllegalArgumentException("Huffman header has no end-of-message code");
+		}
+		return new Huffman(codebook);
+	}
+
+	/**
+	 * Returns the compact serialized form of this instance's canonical code: its
+	 * code lengths, typically a few dozen bytes, from which
+	 * {@link #fromHeader(byte[])} rebuilds an equivalent instance.
+	 * 
+	 * @return The serialized code lengths.
+	 * @throws IllegalStateException If this instance is not in canonical mode.
+	 */
+	public byte[] getHeader() {
+		if (!canonical) {
+			throw new IllegalStateException("Only canonical Huffman codes can be serialized as a header");
+		}
+		return codebook.writeLengths();
+	}
+
+	/**
+	 * @return Whether this instance uses canonical codes.
+	 */
+	public boolean isCanonical() {
+		return canonical;
+	}
+
+	private static Map<Character, Integer> charFrequencies(String corpus) {
+		Map<Character, Integer> charFrequencies = new HashMap<Character, Integer>();
+		int[] counts;
+		if (corpus.length() >= PARALLEL_THRESHOLD) {
+			counts = ForkJoinPool.commonPool().invoke(new Histogram(corpus, 0, corpus.length()));
+		} else {
+			counts = Histogram.count(corpus, 0, corpus.length());
+		}
+		for (int character = 0; character < counts.length; character++) {
+			if (counts[character] > 0) {
+				charFrequencies.put((char) character, counts[character]);
 			}
-			charFrequencies.put(corpus.charAt(i), counter);
 		}
 		charFrequencies.put(ETB_CHAR, 1);
+		return charFrequencies;
 	}
 
-	private void huffmanTrie() {
+	private static HuffNode huffmanTrie(Map<Character, Integer> charFrequencies) {
 		Queue<HuffNode> queue = new PriorityQueue<>();
 		for (var entry : charFrequencies.entrySet()) {
 			queue.add(new HuffNode(entry.getKey(), entry.getValue()));
 		}
-		System.out.println(charFrequencies.toString());
 		while (queue.size() > 1) {
 			HuffNode zeroChild = queue.poll();
 			HuffNode oneChild = queue.poll();
@@ -64,23 +231,54 @@ public class Huffman {
 			queue.add(parent);
 
 		}
-		trieRoot = queue.poll();
+		return queue.poll();
 	}
 
-	private void encode(HuffNode node, String code) {
+	private void assignCodes(HuffNode node, long code, int depth, List<HuffNode> leaves) {
 		if (node.isLeaf()) {
-			encodingMap.put(node.character, code);
+			node.code = code;
+			node.depth = depth;
+			leaves.add(node);
 			return;
 		} else {
-			encode(node.zeroChild, code + "0");
-			encode(node.oneChild, code + "1");
+			assignCodes(node.zeroChild, code << 1, depth + 1, leaves);
+			assignCodes(node.oneChild, (code << 1) | 1, depth + 1, leaves);
 		}
 	}
 
+	private static double averageCodeLength(int[] weights, int[] lengths) {
+		long totalWeight = 0, totalBits = 0;
+		for (int i = 0; i < weights.length; i++) {
+			totalWeight += weights[i];
+			totalBits += (long) weights[i] * lengths[i];
+		}
+		return totalWeight == 0 ? 0 : (double) totalBits / totalWeight;
+	}
+
+	/**
+	 * @return The expected number of bits per character of the corpus under this
+	 *         instance's codes, or 0 if it was built from a header.
+	 */
+	public double getAverageCodeLength() {
+		return averageCodeLength;
+	}
+
+	/**
+	 * Returns the compression lost by limiting code lengths: the relative increase
+	 * of the expected bits per corpus character over unrestricted Huffman codes,
+	 * e.g. 0.01 for codes 1% longer on average. 0 if no limit was set or it was
+	 * never reached.
+	 * 
+	 * @return The relative cost of the code length limit.
+	 */
+	public double getLengthLimitCost() {
+		return unlimitedAverageCodeLength == 0 ? 0 : averageCodeLength / unlimitedAverageCodeLength - 1;
+	}
+
 	/**
 	 * Compresses the given String message / text corpus into its Huffman coded
-	 * bitstring, as represented by an array of bytes. Uses the encodingMap field
-	 * generated during construction for this purpose.
+	 * bitstring, as represented by an array of bytes. Uses the codebook generated
+	 * during construction for this purpose.
 	 * 
 	 * @param message String representing the corpus to compress.
 	 * @return {@code byte[]} representing the compressed corpus with the Huffman
@@ -88,32 +286,22 @@ public class Huffman {
 	 *         message itself, (2) possible 0-padding on the final byte.
 	 */
 	public byte[] compress(String message) {
-		ByteArrayOutputStream output = new ByteArrayOutputStream();
-		String bitString = "";
-		for (int i = 0; i < message.length(); i++) {
-			if (encodingMap.containsKey(message.charAt(i)))
-				;
-			{
-				bitString += encodingMap.get(message.charAt(i));
-			}
-		}
-		bitString += encodingMap.get((char) ETB_CHAR);
-
-		while (bitString.length() % 8 != 0) {
-			bitString += "0";
-		}
-		System.out.println(encodingMap);
-		System.out.println(bitString);
-		for (int i = 0; i < bitString.length(); i += 8) {
-			output.write((byte) (Integer.parseInt(bitString.substring(i, i + 8), 2)));
+		ByteArrayOutputStream output = new ByteArrayOutputStream(message.length() / 2 + 16);
+		try {
+			BitOutput bits = new BitOutput(output);
+			encode(message, 0, message.length(), bits);
+			encodeEnd(bits);
+			bits.finish();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 		return output.toByteArray();
 	}
 
 	/**
 	 * Decompresses the given compressed array of bytes into their original, String
-	 * representation. Uses the trieRoot field (the Huffman Trie) that generated the
-	 * compressed message during decoding.
+	 * representation. Uses the codebook generated from the Huffman Trie that
+	 * compressed the message during decoding.
 	 * 
 	 * @param compressedMsg {@code byte[]} representing the compressed corpus with
 	 *                      the Huffman coded bytecode. Formatted as: (1) the
@@ -123,28 +311,194 @@ public class Huffman {
 	 *         message.
 	 */
 	public String decompress(byte[] compressedMsg) {
-		String bits = "";
-		int len = compressedMsg.length;
-		for (int i = 0; i < len; i++) {
-			bits = bits + String.format("%8s", Integer.toBinaryString(compressedMsg[i] & 0xff)).replace(' ', '0');
+		StringBuilder message = new StringBuilder(compressedMsg.length * 2);
+		try {
+			decode(new BitInput(new ByteArrayInputStream(compressedMsg)), message);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		return decoder(trieRoot, bits, "");
+		return message.toString();
 	}
 
-	private String decoder(HuffNode current, String bits, String empty) {
-		if (current.isLeaf()) {
-			if (current.character == ETB_CHAR) {
-				return empty;
-			} else {
-				return decoder(trieRoot, bits, empty + Character.toString(current.character));
+	/**
+	 * Compresses the UTF-8 text file at source into target, producing the same
+	 * bytes as {@link #compress(String)} would for the file's contents. The source
+	 * is memory-mapped a window at a time and the output written through a
+	 * fixed-size buffer, so heap usage stays constant regardless of file size.
+	 * 
+	 * @param source Path of the UTF-8 text file to compress.
+	 * @param target Path of the compressed file, created or overwritten.
+	 */
+	public void compressFile(Path source, Path target) throws IOException {
+		try (Reader in = new InputStreamReader(new MappedInput(source), StandardCharsets.UTF_8);
+				OutputStream out = openOutput(target)) {
+			BitOutput bits = new BitOutput(out);
+			char[] chars = new char[FILE_CHUNK_SIZE];
+			CharBuffer view = CharBuffer.wrap(chars);
+			int count;
+			while ((count = in.read(chars)) >= 0) {
+				encode(view, 0, count, bits);
 			}
+			encodeEnd(bits);
+			bits.finish();
 		}
-		if (bits.charAt(0) == '0') {
-			return decoder(current.zeroChild, bits.substring(1), empty);
-		} else if (bits.charAt(0) == '1') {
-			return decoder(current.oneChild, bits.substring(1), empty);
+	}
+
+	/**
+	 * Decompresses the file at source, as produced by
+	 * {@link #compressFile(Path, Path)} or {@link #compress(String)}, into the UTF-8
+	 * text file target. The source is memory-mapped a window at a time and the
+	 * output written through a fixed-size buffer, so heap usage stays constant
+	 * regardless of file size.
+	 * 
+	 * @param source Path of the compressed file.
+	 * @param target Path of the decompressed UTF-8 text file, created or
+	 *               overwritten.
+	 */
+	public void decompressFile(Path source, Path target) throws IOException {
+		try (MappedInput in = new MappedInput(source);
+				Writer out = new OutputStreamWriter(openOutput(target), StandardCharsets.UTF_8)) {
+			BitInput bits = new BitInput(in);
+			char[] chars = new char[FILE_CHUNK_SIZE];
+			int count = 0, character;
+			while ((character = decode(bits)) >= 0) {
+				chars[count++] = (char) character;
+				if (count == chars.length) {
+					out.write(chars, 0, count);
+					count = 0;
+				}
+			}
+			out.write(chars, 0, count);
+		}
+	}
+
+	/**
+	 * Opens target for writing, created or truncated. Output is written through
+	 * the channel rather than a mapping: a mapped output file has to be extended
+	 * ahead of the data and truncated afterwards, which fails while a mapping is
+	 * still alive on some platforms, and gains nothing over bulk writes.
+	 */
+	private static OutputStream openOutput(Path target) throws IOException {
+		return new BufferedOutputStream(Files.newOutputStream(target), OUTPUT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @return Approximate number of bytes of heap held by this instance's tables.
+	 */
+	long footprint() {
+		return codebook.footprint();
+	}
+
+	/**
+	 * Writes the codes of the characters of message in [from, to) to the output.
+	 */
+	void encode(CharSequence message, int from, int to, BitOutput out) throws IOException {
+		for (int i = from; i < to; i++) {
+			codebook.encode(message.charAt(i), out);
+		}
+	}
+
+	/**
+	 * Writes the code of the given character to the output.
+	 */
+	void encode(char character, BitOutput out) throws IOException {
+		codebook.encode(character, out);
+	}
+
+	/**
+	 * Writes the end-of-message (ETB) code to the output.
+	 */
+	void encodeEnd(BitOutput out) throws IOException {
+		codebook.encode(ETB_CHAR, out);
+	}
+
+	/**
+	 * Decodes characters from the input into message until the end-of-message
+	 * code or the end of the input is reached.
+	 */
+	void decode(BitInput in, StringBuilder message) throws IOException {
+		while (!in.isExhausted() || codebook.maxLength() == 0) {
+			int symbol = codebook.decode(in);
+			if (symbol == ETB_CHAR) {
+				return;
+			}
+			message.append((char) symbol);
+		}
+	}
+
+	/**
+	 * Decodes the next character from the input.
+	 * 
+	 * @return The decoded character, or -1 at the end-of-message code or the end
+	 *         of the input.
+	 */
+	int decode(BitInput in) throws IOException {
+		if (in.isExhausted() && codebook.maxLength() > 0) {
+			return -1;
+		}
+		int symbol = codebook.decode(in);
+		return symbol == ETB_CHAR ? -1 : symbol;
+	}
+
+	/**
+	 * Fork/join task counting the occurrences of every char value in a range of the
+	 * corpus. Ranges above the chunk size are split in half and the two child
+	 * histograms summed, so counting scales with both corpus size and cores.
+	 */
+	private static class Histogram extends RecursiveTask<int[]> {
+
+		private static final long serialVersionUID = 1L;
+		private static final int CHUNK_SIZE = 1 << 18;
+		private static final int INITIAL_TABLE_SIZE = 1 << 8;
+
+		private final String corpus;
+		private final int from, to;
+
+		Histogram(String corpus, int from, int to) {
+			this.corpus = corpus;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (to - from <= CHUNK_SIZE) {
+				return count(corpus, from, to);
+			}
+			int middle = (from + to) >>> 1;
+			Histogram right = new Histogram(corpus, middle, to);
+			right.fork();
+			int[] counts = new Histogram(corpus, from, middle).compute();
+			int[] rightCounts = right.join();
+			if (rightCounts.length > counts.length) {
+				int[] swap = counts;
+				counts = rightCounts;
+				rightCounts = swap;
+			}
+			for (int i = 0; i < rightCounts.length; i++) {
+				counts[i] += rightCounts[i];
+			}
+			return counts;
+		}
+
+		/**
+		 * Counts every char of corpus in [from, to) into a table indexed by char
+		 * value; since Java chars are UTF-16 code units, one primitive table covers
+		 * every possible symbol. The table starts out covering Latin-1 and doubles
+		 * whenever a larger char turns up, so it is only as long as the largest char
+		 * in the range requires (rounded up to a power of two).
+		 */
+		static int[] count(String corpus, int from, int to) {
+			int[] counts = new int[INITIAL_TABLE_SIZE];
+			for (int i = from; i < to; i++) {
+				char character = corpus.charAt(i);
+				if (character >= counts.length) {
+					counts = Arrays.copyOf(counts, Integer.highestOneBit(character) << 1);
+				}
+				counts[character]++;
+			}
+			return counts;
 		}
-		return null;
 	}
 
 	/**
@@ -159,6 +513,8 @@ public class Huffman {
 		HuffNode zeroChild, oneChild;
 		char character;
 		int count;
+		long code;
+		int depth;
 
 		public String toString() {
 			return "" + character + " " + count;
@@ -0,0 +1,224 @@
+package main.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Block format for Huffman compressed messages: the message is split into
+ * fixed-size chunks of characters, each compressed independently (exactly as by
+ * {@link Huffman#compress(String)}), and prefixed with an index of block
+ * offsets. Blocks are compressed and decompressed in parallel, and any one block
+ * can be decoded without touching the others.
+ * <p>
+ * Archive layout, all ints big-endian:
+ * <ol>
+ * <li>block size in chars</li>
+ * <li>message length in chars</li>
+ * <li>block count n</li>
+ * <li>n + 1 byte offsets of the blocks, relative to the end of the index</li>
+ * <li>the compressed blocks themselves</li>
+ * </ol>
+ */
+public class HuffmanBlocks {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+	private final Huffman huffman;
+	private final int blockSize;
+
+	/**
+	 * Constructs a new HuffmanBlocks codec with the default block size.
+	 *
+	 * @param huffman Huffman instance whose codes compress every block.
+	 */
+	public HuffmanBlocks(Huffman huffman) {
+		this(huffman, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Constructs a new HuffmanBlocks codec.
+	 *
+	 * @param huffman   Huffman instance whose codes compress every block.
+	 * @param blockSize Number of message characters per block.
+	 */
+	public HuffmanBlocks(Huffman huffman, int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("Block size must be positive");
+		}
+		this.huffman = huffman;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Compresses the given message into the block format, encoding the blocks in
+	 * parallel.
+	 *
+	 * @param message String representing the corpus to compress.
+	 * @return {@code byte[]} holding the block index followed by the blocks.
+	 */
+	public byte[] compress(String message) {
+		int blockCount = (int) (((long) message.length() + blockSize - 1) / blockSize);
+		byte[][] blocks = IntStream.range(0, blockCount).parallel()
+				.mapToObj(i -> encodeBlock(message, i))
+				.toArray(byte[][]::new);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try {
+			DataOutputStream data = new DataOutputStream(output);
+			data.writeInt(blockSize);
+			data.writeInt(message.length());
+			data.writeInt(blockCount);
+			int offset = 0;
+			data.writeInt(offset);
+			for (byte[] block : blocks) {
+				offset += block.length;
+				data.writeInt(offset);
+			}
+			for (byte[] block : blocks) {
+				data.write(block);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * Decompresses an entire block archive, decoding the blocks in parallel.
+	 *
+	 * @param archive {@code byte[]} produced by {@link #compress(String)}.
+	 * @return Decompressed String representation of the archive.
+	 */
+	public String decompress(byte[] archive) {
+		Index index = new Index(archive);
+		return decompressBlocks(archive, index, 0, index.blockCount);
+	}
+
+	/**
+	 * Decompresses only the Nth block of the archive.
+	 *
+	 * @param archive {@code byte[]} produced by {@link #compress(String)}.
+	 * @param n       Index of the block to decode.
+	 * @return The characters of the message covered by that block.
+	 */
+	public String decompressBlock(byte[] archive, int n) {
+		Index index = new Index(archive);
+		index.checkBlock(n);
+		return decodeBlock(archive, index, n);
+	}
+
+	/**
+	 * Decompresses the characters [from, to) of the original message, decoding
+	 * only the blocks that overlap that range.
+	 *
+	 * @param archive {@code byte[]} produced by {@link #compress(String)}.
+	 * @param from    Index of the first character to return, inclusive.
+	 * @param to      Index of the last character to return, exclusive.
+	 * @return The requested slice of the original message.
+	 */
+	public String decompressRange(byte[] archive, int from, int to) {
+		Index index = new Index(archive);
+		if (from < 0 || to > index.messageLength || from > to) {
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length "
+					+ index.messageLength);
+		}
+		if (from == to) {
+			return "";
+		}
+		int firstBlock = from / index.blockSize, lastBlock = (to - 1) / index.blockSize;
+		String slice = decompressBlocks(archive, index, firstBlock, lastBlock + 1);
+		int skipped = firstBlock * index.blockSize;
+		return slice.substring(from - skipped, to - skipped);
+	}
+
+	/**
+	 * @param archive {@code byte[]} produced by {@link #compress(String)}.
+	 * @return The number of blocks in the archive.
+	 */
+	public static int blockCount(byte[] archive) {
+		return new Index(archive).blockCount;
+	}
+
+	private byte[] encodeBlock(String message, int n) {
+		int from = n * blockSize, to = (int) Math.min((long) from + blockSize, message.length());
+		ByteArrayOutputStream block = new ByteArrayOutputStream((to - from) / 2 + 16);
+		try {
+			BitOutput bits = new BitOutput(block);
+			huffman.encode(message, from, to, bits);
+			huffman.encodeEnd(bits);
+			bits.finish();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return block.toByteArray();
+	}
+
+	private String decompressBlocks(byte[] archive, Index index, int from, int to) {
+		String[] blocks = IntStream.range(from, to).parallel()
+				.mapToObj(i -> decodeBlock(archive, index, i))
+				.toArray(String[]::new);
+		StringBuilder message = new StringBuilder((int) Math.min((long) (to - from) * index.blockSize, index.messageLength));
+		for (String block : blocks) {
+			message.append(block);
+		}
+		return message.toString();
+	}
+
+	private String decodeBlock(byte[] archive, Index index, int n) {
+		int start = index.dataStart + index.offsets[n], end = index.dataStart + index.offsets[n + 1];
+		StringBuilder block = new StringBuilder(index.blockSize);
+		try {
+			huffman.decode(new BitInput(new ByteArrayInputStream(archive, start, end - start)), block);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return block.toString();
+	}
+
+	/**
+	 * Parsed block index at the front of an archive.
+	 */
+	private static class Index {
+
+		final int blockSize, messageLength, blockCount, dataStart;
+		final int[] offsets;
+
+		Index(byte[] archive) {
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(archive);
+				blockSize = buffer.getInt();
+				messageLength = buffer.getInt();
+				blockCount = buffer.getInt();
+				if (blockSize <= 0 || messageLength < 0 || blockCount < 0
+						|| blockCount != (int) (((long) messageLength + blockSize - 1) / blockSize)) {
+					throw new IllegalArgumentException("Malformed Huffman block index");
+				}
+				offsets = new int[blockCount + 1];
+				for (int i = 0; i <= blockCount; i++) {
+					offsets[i] = buffer.getInt();
+					if (i > 0 && offsets[i] < offsets[i - 1]) {
+						throw new IllegalArgumentException("Malformed Huffman block index");
+					}
+				}
+				dataStart = buffer.position();
+				if (offsets[0] != 0 || dataStart + (long) offsets[blockCount] > archive.length) {
+					throw new IllegalArgumentException("Truncated Huffman block archive");
+				}
+			} catch (BufferUnderflowException e) {
+				throw new IllegalArgumentException("Truncated Huffman block index", e);
+			}
+		}
+
+		void checkBlock(int n) {
+			if (n < 0 || n >= blockCount) {
+				throw new IndexOutOfBoundsException("Block " + n + " out of bounds for " + blockCount + " blocks");
+			}
+		}
+	}
+}
@@ -0,0 +1,441 @@
+package main.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+
+/**
+ * Primitive encoding and decoding tables for a prefix code. Encoding is a pair
+ * of array lookups (code and length by symbol); decoding peeks a fixed number of
+ * bits and resolves most symbols with a single lookup-table hit, walking a flat
+ * int-array trie only for codes longer than the lookup width.
+ */
+final class HuffmanCodebook {
+
+	/**
+	 * Default number of bits resolved by one decoding table lookup.
+	 */
+	static final int DEFAULT_LOOKUP_BITS = 10;
+
+	/**
+	 * Widest decoding lookup table a header may ask for, and the bit of the
+	 * header's first number (the longest code length, at most 63) that asks for
+	 * it to cover every code.
+	 */
+	static final int MAX_SINGLE_LEVEL_BITS = 16;
+	private static final int SINGLE_LEVEL_FLAG = 1 << 6;
+
+	private static final int VALID = 1 << 30, LEAF = 1 << 29, VALUE_MASK = (1 << 24) - 1;
+
+	private final int[] symbols;
+	private final long[] codes;
+	private final byte[] lengths;
+	private final int singleSymbol;
+	private final int maxLength;
+	private final int lookupBits;
+	private final int[] lookup;
+	private int[] tree;
+	private int treeSize;
+
+	/**
+	 * Builds the tables for the given prefix code.
+	 *
+	 * @param symbols       The alphabet, each symbol in [0, 2^24).
+	 * @param symbolCodes   The code of each symbol, right-aligned.
+	 * @param symbolLengths The code length in bits of each symbol; the only symbol
+	 *                      of a single-symbol alphabet may have length 0.
+	 * @param maxLookupBits Upper bound on the width of the decoding lookup table.
+	 */
+	HuffmanCodebook(int[] symbols, long[] symbolCodes, int[] symbolLengths, int maxLookupBits) {
+		int maxSymbol = 0, longest = 0;
+		for (int i = 0; i < symbols.length; i++) {
+			maxSymbol = Math.max(maxSymbol, symbols[i]);
+			longest = Math.max(longest, symbolLengths[i]);
+		}
+		this.symbols = symbols.clone();
+		codes = new long[maxSymbol + 1];
+		lengths = new byte[maxSymbol + 1];
+		maxLength = longest;
+		singleSymbol = (longest == 0 && symbols.length == 1) ? symbols[0] : -1;
+		lookupBits = Math.max(1, Math.min(longest, maxLookupBits));
+		lookup = new int[1 << lookupBits];
+		tree = new int[2 * Math.max(symbols.length, 2)];
+		treeSize = 1;
+		if (singleSymbol >= 0) {
+			return;
+		}
+
+		for (int i = 0; i < symbols.length; i++) {
+			codes[symbols[i]] = symbolCodes[i];
+			lengths[symbols[i]] = (byte) symbolLengths[i];
+			insert(symbols[i], symbolCodes[i], symbolLengths[i]);
+		}
+		for (int i = 0; i < symbols.length; i++) {
+			int length = symbolLengths[i];
+			long code = symbolCodes[i];
+			if (length <= lookupBits) {
+				int base = (int) (code << (lookupBits - length));
+				Arrays.fill(lookup, base, base + (1 << (lookupBits - length)), VALID | LEAF | (length << 24) | symbols[i]);
+			} else {
+				int prefix = (int) (code >>> (length - lookupBits));
+				int node = 0;
+				for (int bit = lookupBits - 1; bit >= 0; bit--) {
+					node = tree[2 * node + ((prefix >>> bit) & 1)];
+				}
+				lookup[prefix] = VALID | node;
+			}
+		}
+	}
+
+	/**
+	 * Builds the tables for the canonical prefix code with the given code lengths:
+	 * codes are assigned in increasing order of (length, symbol), so the lengths
+	 * alone determine the whole code.
+	 *
+	 * @param symbols       The alphabet, each symbol in [0, 2^24).
+	 * @param symbolLengths The code length in bits of each symbol.
+	 * @param maxLookupBits Upper bound on the width of the decoding lookup table.
+	 * @throws IllegalArgumentException If the lengths do not form a prefix code.
+	 */
+	static HuffmanCodebook canonical(int[] symbols, int[] symbolLengths, int maxLookupBits) {
+		Integer[] order = new Integer[symbols.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> symbolLengths[a] != symbolLengths[b] ? symbolLengths[a] - symbolLengths[b]
+				: symbols[a] - symbols[b]);
+		long[] symbolCodes = new long[symbols.length];
+		long code = 0;
+		int previousLength = 0;
+		for (int i : order) {
+			code <<= symbolLengths[i] - previousLength;
+			previousLength = symbolLengths[i];
+			if (previousLength < 63 && code >>> previousLength != 0) {
+				throw new IllegalArgumentException("Code lengths do not form a prefix code");
+			}
+			symbolCodes[i] = code++;
+		}
+		return new HuffmanCodebook(symbols, symbolCodes, symbolLengths, maxLookupBits);
+	}
+
+	/**
+	 * Computes Huffman code lengths for the given symbol frequencies by repeatedly
+	 * merging the two lightest subtrees, using only primitive arrays and a heap of
+	 * packed (weight, node) longs.
+	 *
+	 * @param frequencies Frequency of each symbol, indexed by symbol; symbols with
+	 *                    frequency 0 get no code.
+	 * @return Code length of each symbol, indexed by symbol (0 for absent symbols,
+	 *         and for the only symbol of a single-symbol alphabet).
+	 */
+	static int[] codeLengths(int[] frequencies) {
+		int n = frequencies.length;
+		int[] parent = new int[2 * n];
+		PriorityQueue<Long> heap = new PriorityQueue<>();
+		for (int symbol = 0; symbol < n; symbol++) {
+			if (frequencies[symbol] > 0) {
+				heap.add(((long) frequencies[symbol] << 24) | symbol);
+			}
+		}
+		int next = n;
+		while (heap.size() > 1) {
+			long zero = heap.poll(), one = heap.poll();
+			parent[(int) (zero & VALUE_MASK)] = next;
+			parent[(int) (one & VALUE_MASK)] = next;
+			heap.add((((zero >>> 24) + (one >>> 24)) << 24) | next++);
+		}
+		int[] depth = new int[next];
+		for (int node = next - 2; node >= n; node--) {
+			depth[node] = depth[parent[node]] + 1;
+		}
+		int[] lengths = new int[n];
+		if (next > n) {
+			for (int symbol = 0; symbol < n; symbol++) {
+				if (frequencies[symbol] > 0) {
+					lengths[symbol] = depth[parent[symbol]] + 1;
+				}
+			}
+		}
+		return lengths;
+	}
+
+	/**
+	 * Computes optimal code lengths no longer than maxLength for the given weights
+	 * with the package-merge algorithm. Starting from the leaves sorted by weight
+	 * at the deepest level, each level up merges the leaves with the pairwise
+	 * "packages" of the level below; the 2n - 2 lightest items of the top level
+	 * then determine how many of the lightest leaves are chosen at each level, and
+	 * each time a leaf is chosen its code length grows by one.
+	 *
+	 * @param weights   Positive weight of each symbol.
+	 * @param maxLength Maximum code length in bits.
+	 * @return Code length of each symbol, in the order of weights.
+	 * @throws IllegalArgumentException If 2^maxLength is smaller than the number of
+	 *                                  symbols.
+	 */
+	static int[] limitedCodeLengths(int[] weights, int maxLength) {
+		int n = weights.length;
+		int[] lengths = new int[n];
+		if (n <= 1) {
+			return lengths;
+		}
+		if (maxLength < 31 && n > 1 << maxLength) {
+			throw new IllegalArgumentException(n + " symbols cannot be coded in " + maxLength + " bits");
+		}
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Integer.compare(weights[a], weights[b]));
+		long[] leafWeights = new long[n];
+		for (int i = 0; i < n; i++) {
+			leafWeights[i] = weights[order[i]];
+		}
+
+		// isPackage[level][i]: whether item i of that level's merged list is a package
+		boolean[][] isPackage = new boolean[maxLength + 1][];
+		long[] items = leafWeights.clone();
+		isPackage[maxLength] = new boolean[n];
+		for (int level = maxLength - 1; level >= 1; level--) {
+			int packages = items.length / 2;
+			long[] merged = new long[n + packages];
+			boolean[] flags = new boolean[n + packages];
+			int leaf = 0, pack = 0;
+			for (int i = 0; i < merged.length; i++) {
+				long packageWeight = pack < packages ? items[2 * pack] + items[2 * pack + 1] : Long.MAX_VALUE;
+				if (leaf < n && leafWeights[leaf] <= packageWeight) {
+					merged[i] = leafWeights[leaf++];
+				} else {
+					merged[i] = packageWeight;
+					flags[i] = true;
+					pack++;
+				}
+			}
+			items = merged;
+			isPackage[level] = flags;
+		}
+
+		int chosen = 2 * n - 2;
+		for (int level = 1; level <= maxLength && chosen > 0; level++) {
+			int leaves = 0;
+			for (int i = 0; i < chosen; i++) {
+				if (!isPackage[level][i]) {
+					lengths[order[leaves++]]++;
+				}
+			}
+			chosen = 2 * (chosen - leaves);
+		}
+		return lengths;
+	}
+
+	/**
+	 * Serializes the code lengths of this codebook into the compact form read by
+	 * {@link #readCanonical(InputStream)}: the longest code length, then for each
+	 * length from 1 to it the number of symbols with that length followed by those
+	 * symbols in ascending order, delta-coded. All numbers are unsigned LEB128
+	 * varints. A single-symbol alphabet is written as length 0 followed by its
+	 * symbol. If this codebook's lookup table covers codes longer than
+	 * {@link #DEFAULT_LOOKUP_BITS} (as for length-limited codes), the longest code
+	 * length carries {@code SINGLE_LEVEL_FLAG}, so that decoders rebuilt from the
+	 * header get the same single-level table; otherwise they get the default one.
+	 * 
+	 * @return The serialized code lengths.
+	 */
+	byte[] writeLengths() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		boolean singleLevel = maxLength > DEFAULT_LOOKUP_BITS && lookupBits >= maxLength;
+		writeVarint(out, singleLevel ? maxLength | SINGLE_LEVEL_FLAG : maxLength);
+		if (singleSymbol >= 0) {
+			writeVarint(out, singleSymbol);
+			return out.toByteArray();
+		}
+		int[] sorted = symbols.clone();
+		Arrays.sort(sorted);
+		for (int length = 1; length <= maxLength; length++) {
+			int count = 0;
+			for (int symbol : sorted) {
+				if (lengths[symbol] == length) {
+					count++;
+				}
+			}
+			writeVarint(out, count);
+			int previous = 0;
+			for (int symbol : sorted) {
+				if (lengths[symbol] == length) {
+					writeVarint(out, symbol - previous);
+					previous = symbol;
+				}
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Reads code lengths serialized by {@link #writeLengths()} and builds the
+	 * canonical codebook they describe, with a lookup table of
+	 * {@link #DEFAULT_LOOKUP_BITS} unless the header asks for one covering every
+	 * code.
+	 * 
+	 * @throws IllegalArgumentException If the serialized lengths are malformed.
+	 */
+	static HuffmanCodebook readCanonical(InputStream in) throws IOException {
+		int maxLength = readVarint(in), maxLookupBits = DEFAULT_LOOKUP_BITS;
+		if ((maxLength & SINGLE_LEVEL_FLAG) != 0) {
+			maxLength &= ~SINGLE_LEVEL_FLAG;
+			if (maxLength > MAX_SINGLE_LEVEL_BITS) {
+				throw new IllegalArgumentException("Malformed Huffman header");
+			}
+			maxLookupBits = maxLength;
+		}
+		if (maxLength == 0) {
+			return new HuffmanCodebook(new int[] { readVarint(in) }, new long[1], new int[1], maxLookupBits);
+		}
+		if (maxLength > 63) {
+			throw new IllegalArgumentException("Code length " + maxLength + " out of range");
+		}
+		int[] symbols = new int[16], symbolLengths = new int[16];
+		int size = 0;
+		BitSet seen = new BitSet();
+		for (int length = 1; length <= maxLength; length++) {
+			int count = readVarint(in), symbol = 0;
+			for (int i = 0; i < count; i++) {
+				symbol += readVarint(in);
+				if (seen.get(symbol) || symbol > VALUE_MASK) {
+					throw new IllegalArgumentException("Malformed Huffman header");
+				}
+				seen.set(symbol);
+				if (size == symbols.length) {
+					symbols = Arrays.copyOf(symbols, 2 * size);
+					symbolLengths = Arrays.copyOf(symbolLengths, 2 * size);
+				}
+				symbols[size] = symbol;
+				symbolLengths[size++] = length;
+			}
+		}
+		return canonical(Arrays.copyOf(symbols, size), Arrays.copyOf(symbolLengths, size), maxLookupBits);
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarint(InputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.read();
+			if (b < 0) {
+				throw new IllegalArgumentException("Truncated Huffman header");
+			}
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0 || value > VALUE_MASK) {
+					throw new IllegalArgumentException("Huffman header value out of range");
+				}
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed Huffman header");
+	}
+
+	private void insert(int symbol, long code, int length) {
+		int node = 0;
+		for (int bit = length - 1; bit > 0; bit--) {
+			int slot = 2 * node + (int) ((code >>> bit) & 1);
+			if (tree[slot] == 0) {
+				if (2 * treeSize + 2 > tree.length) {
+					tree = Arrays.copyOf(tree, 2 * tree.length);
+				}
+				tree[slot] = treeSize++;
+			}
+			node = tree[slot];
+		}
+		tree[2 * node + (int) (code & 1)] = ~symbol;
+	}
+
+	/**
+	 * @return Whether the given symbol can be encoded with this codebook.
+	 */
+	boolean contains(int symbol) {
+		return symbol >= 0 && symbol < lengths.length && (lengths[symbol] > 0 || symbol == singleSymbol);
+	}
+
+	/**
+	 * @return The code length in bits of the given symbol, 0 if it is not in the
+	 *         alphabet (or is the only symbol in it).
+	 */
+	int length(int symbol) {
+		return symbol < lengths.length ? lengths[symbol] : 0;
+	}
+
+	/**
+	 * @return The code of the given symbol, right-aligned.
+	 */
+	long code(int symbol) {
+		return codes[symbol];
+	}
+
+	/**
+	 * @return The length of the longest code in this codebook.
+	 */
+	int maxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * @return Approximate number of bytes of heap held by these tables.
+	 */
+	long footprint() {
+		return 4L * symbols.length + 8L * codes.length + lengths.length + 4L * lookup.length + 4L * tree.length;
+	}
+
+	/**
+	 * Writes the code of the given symbol to the output.
+	 *
+	 * @throws IllegalArgumentException If the symbol is not in the alphabet.
+	 */
+	void encode(int symbol, BitOutput out) throws IOException {
+		if (!contains(symbol)) {
+			throw new IllegalArgumentException("Symbol " + symbol + " is not in the Huffman alphabet");
+		}
+		out.write(codes[symbol], lengths[symbol]);
+	}
+
+	/**
+	 * Reads and returns the next symbol from the input.
+	 *
+	 * @throws IllegalArgumentException If the input holds a bit sequence that is
+	 *                                  not a code of this codebook.
+	 */
+	int decode(BitInput in) throws IOException {
+		if (singleSymbol >= 0) {
+			return singleSymbol;
+		}
+		int entry = lookup[in.peek(lookupBits)];
+		if ((entry & LEAF) != 0) {
+			in.skip((entry >>> 24) & 31);
+			return entry & VALUE_MASK;
+		}
+		if (entry == 0) {
+			throw new IllegalArgumentException("Invalid Huffman code in compressed message");
+		}
+		in.skip(lookupBits);
+		int node = entry & VALUE_MASK;
+		while (true) {
+			int child = tree[2 * node + in.readBit()];
+			if (child < 0) {
+				return ~child;
+			}
+			if (child == 0) {
+				throw new IllegalArgumentException("Invalid Huffman code in compressed message");
+			}
+			node = child;
+		}
+	}
+}
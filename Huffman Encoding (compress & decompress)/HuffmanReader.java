@@ -0,0 +1,53 @@
+package main.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Reader that decodes a Huffman compressed byte stream, as produced by
+ * {@link Huffman#compress(String)} or a {@link HuffmanWriter}, on the fly from
+ * the wrapped InputStream using a constant amount of memory.
+ */
+public class HuffmanReader extends Reader {
+
+	private final Huffman huffman;
+	private final InputStream in;
+	private final BitInput bits;
+	private boolean ended, closed;
+
+	/**
+	 * Constructs a new HuffmanReader that decodes with the given Huffman instance.
+	 * 
+	 * @param huffman Huffman instance whose codes compressed the stream.
+	 * @param in      InputStream supplying the compressed bytes.
+	 */
+	public HuffmanReader(Huffman huffman, InputStream in) {
+		this.huffman = huffman;
+		this.in = in;
+		this.bits = new BitInput(in);
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		int count = 0;
+		while (count < len && !ended) {
+			int c = huffman.decode(bits);
+			if (c < 0) {
+				ended = true;
+			} else {
+				cbuf[off + count++] = (char) c;
+			}
+		}
+		return (count == 0 && len > 0) ? -1 : count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		in.close();
+	}
+}
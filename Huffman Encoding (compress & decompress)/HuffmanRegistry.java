@@ -0,0 +1,162 @@
+package main.compression;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Thread-safe cache of trained Huffman instances keyed by a fingerprint of the
+ * corpus they were trained on, so that recurring corpus types are trained once
+ * and the resulting (immutable) instance is shared by every thread that needs
+ * it. Concurrent requests for a corpus that is still being trained wait for that
+ * single training rather than repeating it. Models are evicted least recently
+ * used first once either the model count or their combined table footprint
+ * exceeds the registry's bounds.
+ */
+public class HuffmanRegistry {
+
+	private final int maxModels;
+	private final long maxBytes;
+	private final Function<String, Huffman> trainer;
+	private final LinkedHashMap<String, Entry> models = new LinkedHashMap<>(16, 0.75f, true);
+	private long totalBytes;
+
+	/**
+	 * Constructs a new HuffmanRegistry that trains canonical Huffman instances.
+	 * 
+	 * @param maxModels Maximum number of models to keep.
+	 * @param maxBytes  Maximum combined approximate heap footprint of the models'
+	 *                  tables.
+	 */
+	public HuffmanRegistry(int maxModels, long maxBytes) {
+		this(maxModels, maxBytes, corpus -> new Huffman(corpus, true));
+	}
+
+	/**
+	 * Constructs a new HuffmanRegistry.
+	 * 
+	 * @param maxModels Maximum number of models to keep.
+	 * @param maxBytes  Maximum combined approximate heap footprint of the models'
+	 *                  tables.
+	 * @param trainer   Builds the model for a corpus, e.g.
+	 *                  {@code corpus -> new Huffman(corpus, 12)}.
+	 */
+	public HuffmanRegistry(int maxModels, long maxBytes, Function<String, Huffman> trainer) {
+		if (maxModels <= 0 || maxBytes <= 0) {
+			throw new IllegalArgumentException("Registry bounds must be positive");
+		}
+		this.maxModels = maxModels;
+		this.maxBytes = maxBytes;
+		this.trainer = trainer;
+	}
+
+	/**
+	 * Returns the model trained on the given corpus, training it first if it is
+	 * not cached.
+	 * 
+	 * @param corpus Text whose character distribution the codes are built for.
+	 * @return The shared Huffman instance for that corpus.
+	 */
+	public Huffman get(String corpus) {
+		String key = fingerprint(corpus);
+		Entry entry;
+		boolean train = false;
+		synchronized (this) {
+			entry = models.get(key);
+			if (entry == null) {
+				entry = new Entry();
+				models.put(key, entry);
+				train = true;
+			}
+		}
+		if (train) {
+			try {
+				Huffman model = trainer.apply(corpus);
+				entry.model.complete(model);
+				admit(key, entry, model.footprint());
+			} catch (RuntimeException | Error e) {
+				synchronized (this) {
+					models.remove(key, entry);
+				}
+				entry.model.completeExceptionally(e);
+				throw e;
+			}
+		}
+		return entry.model.join();
+	}
+
+	/**
+	 * @return The number of models currently cached or in training.
+	 */
+	public synchronized int size() {
+		return models.size();
+	}
+
+	/**
+	 * Removes every cached model.
+	 */
+	public synchronized void clear() {
+		models.clear();
+		totalBytes = 0;
+	}
+
+	/**
+	 * Returns the fingerprint under which models for the given corpus are cached:
+	 * the hex SHA-256 digest of its UTF-16 code units.
+	 * 
+	 * @param corpus Text to fingerprint.
+	 * @return The corpus fingerprint.
+	 */
+	public static String fingerprint(String corpus) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		byte[] chunk = new byte[1 << 13];
+		for (int i = 0; i < corpus.length();) {
+			int count = 0;
+			for (; count < chunk.length && i < corpus.length(); i++) {
+				char c = corpus.charAt(i);
+				chunk[count++] = (byte) (c >>> 8);
+				chunk[count++] = (byte) c;
+			}
+			digest.update(chunk, 0, count);
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	private synchronized void admit(String key, Entry entry, long bytes) {
+		if (models.get(key) != entry) {
+			return;
+		}
+		entry.bytes = bytes;
+		totalBytes += bytes;
+		Iterator<Map.Entry<String, Entry>> eldest = models.entrySet().iterator();
+		while ((models.size() > maxModels || totalBytes > maxBytes) && eldest.hasNext()) {
+			Entry candidate = eldest.next().getValue();
+			if (candidate != entry && candidate.model.isDone()) {
+				totalBytes -= candidate.bytes;
+				eldest.remove();
+			}
+		}
+	}
+
+	/**
+	 * A cached model, possibly still in training, and its table footprint.
+	 */
+	private static class Entry {
+
+		final CompletableFuture<Huffman> model = new CompletableFuture<>();
+		long bytes;
+	}
+}
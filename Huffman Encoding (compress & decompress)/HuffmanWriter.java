@@ -0,0 +1,78 @@
+package main.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Writer that Huffman encodes the characters written to it straight into the
+ * wrapped OutputStream, using a constant amount of memory regardless of message
+ * length. Closing the writer appends the end-of-message code and the final
+ * 0-padding, producing the same bytes as {@link Huffman#compress(String)}.
+ */
+public class HuffmanWriter extends Writer {
+
+	private final Huffman huffman;
+	private final OutputStream out;
+	private final BitOutput bits;
+	private boolean closed;
+
+	/**
+	 * Constructs a new HuffmanWriter that encodes with the given Huffman instance.
+	 * 
+	 * @param huffman Huffman instance whose codes are used for compression.
+	 * @param out     OutputStream receiving the compressed bytes.
+	 */
+	public HuffmanWriter(Huffman huffman, OutputStream out) {
+		this.huffman = huffman;
+		this.out = out;
+		this.bits = new BitOutput(out);
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		ensureOpen();
+		huffman.encode((char) c, bits);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		huffman.encode(CharBuffer.wrap(cbuf), off, off + len, bits);
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		ensureOpen();
+		huffman.encode(str, off, off + len, bits);
+	}
+
+	/**
+	 * Flushes every complete compressed byte to the wrapped stream; bits of a
+	 * partial final byte are held back until more characters arrive or the writer
+	 * is closed.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		bits.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		huffman.encodeEnd(bits);
+		bits.finish();
+		closed = true;
+		out.close();
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package main.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream over a file that is memory-mapped one fixed-size window at a time,
+ * so files of any size are read without copying them onto the heap.
+ */
+class MappedInput extends InputStream {
+
+	static final long WINDOW_SIZE = 1L << 26;
+
+	private final FileChannel channel;
+	private final long size;
+	private long windowStart;
+	private MappedByteBuffer window;
+
+	MappedInput(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		size = channel.size();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextWindow()) {
+			return -1;
+		}
+		return window.get() & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextWindow()) {
+			return -1;
+		}
+		int count = Math.min(len, window.remaining());
+		window.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	/**
+	 * Maps the next window if the current one is used up.
+	 * 
+	 * @return Whether any bytes remain to be read.
+	 */
+	private boolean nextWindow() throws IOException {
+		if (window != null && window.hasRemaining()) {
+			return true;
+		}
+		if (window != null) {
+			windowStart += window.capacity();
+		}
+		if (windowStart >= size) {
+			return false;
+		}
+		window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+		return true;
+	}
+}
@@ -0,0 +1,110 @@
+package main.compression.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import main.compression.Huffman;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for Huffman training, compression and decompression over
+ * synthetic corpora. Besides ops/s, every benchmark reports a {@code bytes}
+ * counter: the rate of uncompressed characters processed per second (so MB/s of
+ * text). Run with {@code -prof gc} to also get allocation rates, e.g.
+ * <pre>
+ * mvn -B package &amp;&amp; java -jar benchmarks/target/benchmarks.jar Huffman -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class HuffmanBenchmark {
+
+	/**
+	 * Character distribution of the corpus: "skewed" draws from an exponential
+	 * distribution over printable ASCII (like natural text, a few very frequent
+	 * characters), "uniform" draws evenly from 64 characters.
+	 */
+	@Param({ "skewed", "uniform" })
+	public String distribution;
+
+	/**
+	 * Corpus length in characters, from 1 KB to 100 MB.
+	 */
+	@Param({ "1024", "1048576", "16777216", "104857600" })
+	public int size;
+
+	private String corpus;
+	private Huffman huffman;
+	private byte[] compressed;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		corpus = generate(distribution, size, 42);
+		huffman = new Huffman(corpus);
+		compressed = huffman.compress(corpus);
+	}
+
+	@Benchmark
+	public Huffman train(Throughput throughput) {
+		throughput.bytes += corpus.length();
+		return new Huffman(corpus);
+	}
+
+	@Benchmark
+	public byte[] compress(Throughput throughput) {
+		throughput.bytes += corpus.length();
+		return huffman.compress(corpus);
+	}
+
+	@Benchmark
+	public String decompress(Throughput throughput) {
+		throughput.bytes += corpus.length();
+		return huffman.decompress(compressed);
+	}
+
+	/**
+	 * Per-thread counter of uncompressed characters processed, reported by JMH as
+	 * a rate next to each benchmark's score.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Throughput {
+
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+	}
+
+	static String generate(String distribution, int size, long seed) {
+		Random random = new Random(seed);
+		char[] chars = new char[size];
+		for (int i = 0; i < size; i++) {
+			if (distribution.equals("uniform")) {
+				chars[i] = (char) ('0' + random.nextInt(64));
+			} else {
+				chars[i] = (char) (' ' + Math.min(94, (int) (-Math.log(1 - random.nextDouble()) * 6)));
+			}
+		}
+		return new String(chars);
+	}
+}